@@ -0,0 +1,5 @@
+# JSON编解码器按"类名$$JSONCodec"查找，保留注解类名称和编解码器
+-keepnames @androidx.io.core.net.JSONClass class *
+-keep class **$$JSONCodec {
+    <init>();
+}
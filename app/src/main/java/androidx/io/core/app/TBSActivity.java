@@ -24,9 +24,12 @@ import androidx.io.core.adapter.TBSAdapter;
 import androidx.io.core.core.IOProvider;
 import androidx.io.core.core.TBS;
 import androidx.io.core.core.UriProvider;
+import androidx.io.core.net.DownloadScheduler;
 import androidx.io.core.net.Downloader;
+import androidx.io.core.net.HttpCache;
 import androidx.io.core.net.JSON;
 import androidx.io.core.net.OnDownloadListener;
+import androidx.io.core.net.RetryPolicy;
 import androidx.io.core.photo.PhotoView;
 import androidx.io.core.widget.CircleProgress;
 import androidx.viewpager.widget.ViewPager;
@@ -269,6 +272,10 @@ public class TBSActivity extends AppCompatActivity implements TbsReaderView.Read
         progressView.setVisibility(View.VISIBLE);
         Downloader downloader = new Downloader(this, url);
         downloader.setOverride(override);
+        downloader.setCache(HttpCache.getDefault(this));
+        downloader.setRetryPolicy(new RetryPolicy());
+        downloader.setScheduler(DownloadScheduler.getDefault());
+        downloader.setPriority(DownloadScheduler.PRIORITY_HIGH);
         downloader.setOnDownloadListener(this);
         downloader.start();
     }
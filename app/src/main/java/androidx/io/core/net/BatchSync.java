@@ -0,0 +1,500 @@
+package androidx.io.core.net;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 按清单批量同步文件夹，与本地索引比较后只下载缺失或已修改的文件，
+ * 限制并行数量，汇总进度并在全部结束后回调一次。
+ * 每个条目通过{@link Downloader}下载，使用调度器、相同下载合并和全局限速。
+ */
+public class BatchSync {
+
+    public String TAG = BatchSync.class.getSimpleName();
+
+    /**
+     * 本地索引文件名
+     */
+    public static final String INDEX_NAME = ".sync_index";
+    /**
+     * 索引中未下载完成的标记
+     */
+    private static final String PARTIAL = "partial";
+
+    private Context context;
+    private File dir;
+    private List<SyncEntry> manifest;
+    private int parallelism = 3;
+    private RetryPolicy retryPolicy;
+    private Map<String, String> headers;
+    private OnSyncListener listener;
+    private DownloadScheduler scheduler;
+    private Handler handler;
+    private ExecutorService service;
+    private Map<String, String[]> index;
+    private List<Downloader> downloaders;
+    private List<SyncEntry> entries;
+    private long[] progresses;
+    private List<SyncEntry> updated;
+    private List<SyncEntry> failed;
+    private long total;
+    private volatile boolean cancelled;
+    private boolean finished;
+
+    /**
+     * 构建批量同步
+     *
+     * @param context  上下文
+     * @param dir      本地文件夹
+     * @param manifest 远程清单
+     */
+    public BatchSync(Context context, File dir, List<SyncEntry> manifest) {
+        this.context = context;
+        this.dir = dir;
+        this.manifest = manifest;
+        this.headers = new HashMap<>();
+        this.handler = new Handler(Looper.getMainLooper());
+        this.index = new HashMap<>();
+        this.downloaders = new ArrayList<>();
+        this.updated = new ArrayList<>();
+        this.failed = new ArrayList<>();
+    }
+
+    /**
+     * 设置并行下载数量
+     *
+     * @param parallelism 并行数量
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 设置重试策略
+     *
+     * @param retryPolicy 重试策略
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * 添加Header
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public void addHeader(String key, String value) {
+        headers.put(key, value);
+    }
+
+    /**
+     * 设置下载调度器，设置后条目按调度器的并发限制下载
+     *
+     * @param scheduler 调度器，例如{@link DownloadScheduler#getDefault()}
+     */
+    public void setScheduler(DownloadScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 设置同步监听
+     *
+     * @param listener 监听
+     */
+    public void setOnSyncListener(OnSyncListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 开始同步，在子线程比较本地文件后下载
+     */
+    public void start() {
+        service = Executors.newFixedThreadPool(parallelism);
+        service.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<SyncEntry> changes = plan();
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        download(changes);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 取消同步，未完成的条目作为失败条目回调同步结束
+     */
+    public void cancel() {
+        cancelled = true;
+        synchronized (this) {
+            for (Downloader downloader : downloaders) {
+                downloader.cancel();
+            }
+        }
+        if (service != null) {
+            service.shutdown();
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                finish();
+            }
+        });
+    }
+
+    /**
+     * 是否已取消
+     *
+     * @return
+     */
+    public boolean isCancel() {
+        return cancelled;
+    }
+
+    /**
+     * 比较清单和本地文件，找出需要下载的条目
+     *
+     * @return 需要下载的条目
+     */
+    private List<SyncEntry> plan() {
+        loadIndex();
+        List<SyncEntry> changes = new ArrayList<>();
+        for (SyncEntry entry : manifest) {
+            if (!isUnchanged(entry)) {
+                changes.add(entry);
+            }
+        }
+        saveIndex();
+        Log.i(TAG, "manifest: " + manifest.size() + ", changes: " + changes.size());
+        return changes;
+    }
+
+    /**
+     * 本地文件是否与清单一致，索引记录的修改时间一致时不重新计算摘要
+     *
+     * @param entry 条目
+     * @return
+     */
+    private boolean isUnchanged(SyncEntry entry) {
+        File file = new File(dir, entry.getPath());
+        if (!file.exists() || file.length() != entry.getSize()) {
+            return false;
+        }
+        if (entry.getDigest() == null) {
+            return true;
+        }
+        synchronized (index) {
+            String[] record = index.get(entry.getPath());
+            if (record != null && record[1].equals(String.valueOf(file.lastModified()))
+                    && record[2].equalsIgnoreCase(entry.getAlgorithm()) && record[3].equalsIgnoreCase(entry.getDigest())) {
+                return true;
+            }
+        }
+        try {
+            if (new DigestVerifier(entry.getAlgorithm(), entry.getDigest()).verify(file)) {
+                record(entry, file);
+                return true;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * 下载需要更新的条目
+     *
+     * @param changes 需要下载的条目
+     */
+    private void download(List<SyncEntry> changes) {
+        if (cancelled) {
+            return;
+        }
+        entries = changes;
+        progresses = new long[changes.size()];
+        total = 0;
+        for (SyncEntry entry : changes) {
+            total += entry.getSize();
+        }
+        if (changes.size() == 0) {
+            finish();
+            return;
+        }
+        String root;
+        try {
+            root = dir.getCanonicalPath() + File.separator;
+        } catch (IOException e) {
+            e.printStackTrace();
+            root = dir.getAbsolutePath() + File.separator;
+        }
+        for (int i = 0; i < changes.size() && !cancelled && !service.isShutdown(); i++) {
+            SyncEntry entry = changes.get(i);
+            File file = new File(dir, entry.getPath());
+            try {
+                if (!file.getCanonicalPath().startsWith(root)) {
+                    throw new IOException("Illegal sync path " + entry.getPath());
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                synchronized (this) {
+                    failed.add(entry);
+                }
+                continue;
+            }
+            Downloader downloader = new Downloader(context, entry.getUrl());
+            downloader.setService(service);
+            downloader.setScheduler(scheduler);
+            downloader.setTarget(file);
+            downloader.setOverride(!isPartial(entry, file));
+            recordPartial(entry);
+            downloader.setRetryPolicy(retryPolicy);
+            if (entry.getDigest() != null) {
+                downloader.setDigest(entry.getAlgorithm(), entry.getDigest());
+            }
+            for (String key : headers.keySet()) {
+                downloader.addHeader(key, headers.get(key));
+            }
+            downloader.setOnDownloadListener(new EntryListener(i));
+            synchronized (this) {
+                downloaders.add(downloader);
+            }
+            try {
+                downloader.start();
+            } catch (RejectedExecutionException e) {
+                e.printStackTrace();
+                synchronized (this) {
+                    failed.add(entry);
+                }
+            }
+        }
+        saveIndex();
+        boolean done;
+        synchronized (this) {
+            done = failed.size() == changes.size();
+        }
+        if (done) {
+            finish();
+        }
+    }
+
+    /**
+     * 同步结束，只回调一次，取消时未完成的条目加入失败条目
+     */
+    private void finish() {
+        List<SyncEntry> updated;
+        List<SyncEntry> failed;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            List<SyncEntry> pending = entries != null ? entries : (cancelled ? manifest : new ArrayList<SyncEntry>());
+            for (SyncEntry entry : pending) {
+                if (!this.updated.contains(entry) && !this.failed.contains(entry)) {
+                    this.failed.add(entry);
+                }
+            }
+            updated = new ArrayList<>(this.updated);
+            failed = new ArrayList<>(this.failed);
+        }
+        if (service != null) {
+            service.shutdown();
+        }
+        if (listener != null) {
+            listener.onSyncCompleted(updated, failed);
+        }
+    }
+
+    /**
+     * 本地文件是否为同一摘要的未完成下载，是时继续下载，否则覆盖下载；
+     * 清单没有摘要时无法确认旧文件内容，总是覆盖
+     *
+     * @param entry 条目
+     * @param file  本地文件
+     * @return
+     */
+    private boolean isPartial(SyncEntry entry, File file) {
+        if (entry.getDigest() == null || !file.exists() || file.length() >= entry.getSize()) {
+            return false;
+        }
+        synchronized (index) {
+            String[] record = index.get(entry.getPath());
+            return record != null && record[1].equals(PARTIAL) && record[0].equals(String.valueOf(entry.getSize()))
+                    && record[2].equalsIgnoreCase(entry.getAlgorithm()) && record[3].equalsIgnoreCase(entry.getDigest());
+        }
+    }
+
+    /**
+     * 记录条目开始下载，完成后由{@link #record(SyncEntry, File)}覆盖
+     *
+     * @param entry 条目
+     */
+    private void recordPartial(SyncEntry entry) {
+        synchronized (index) {
+            index.put(entry.getPath(), new String[]{String.valueOf(entry.getSize()), PARTIAL,
+                    entry.getAlgorithm(), entry.getDigest() == null ? "" : entry.getDigest()});
+        }
+    }
+
+    /**
+     * 记录索引
+     *
+     * @param entry 条目
+     * @param file  本地文件
+     */
+    private void record(SyncEntry entry, File file) {
+        synchronized (index) {
+            index.put(entry.getPath(), new String[]{String.valueOf(entry.getSize()), String.valueOf(file.lastModified()),
+                    entry.getAlgorithm(), entry.getDigest() == null ? "" : entry.getDigest()});
+        }
+    }
+
+    /**
+     * 读取索引
+     */
+    private void loadIndex() {
+        File file = new File(dir, INDEX_NAME);
+        if (!file.exists()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(file));
+            String line;
+            synchronized (index) {
+                index.clear();
+                while ((line = reader.readLine()) != null) {
+                    String[] values = line.split("\t", -1);
+                    if (values.length == 5) {
+                        index.put(values[0], new String[]{values[1], values[2], values[3], values[4]});
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                if (reader != null) {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 保存索引
+     */
+    private void saveIndex() {
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        FileWriter writer = null;
+        try {
+            writer = new FileWriter(new File(dir, INDEX_NAME));
+            synchronized (index) {
+                for (String path : index.keySet()) {
+                    String[] record = index.get(path);
+                    writer.write(path + "\t" + record[0] + "\t" + record[1] + "\t" + record[2] + "\t" + record[3] + "\n");
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 单个条目的下载监听，汇总进度
+     */
+    private class EntryListener implements OnDownloadListener {
+
+        private int position;
+
+        EntryListener(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public void onDownloading(long total, long progress) {
+            progresses[position] = progress;
+            dispatchProgress();
+        }
+
+        @Override
+        public void onDownloadCompleted(File file) {
+            SyncEntry entry = entries.get(position);
+            progresses[position] = entry.getSize();
+            boolean done;
+            synchronized (BatchSync.this) {
+                updated.add(entry);
+                done = updated.size() + failed.size() == entries.size();
+            }
+            record(entry, file);
+            saveIndex();
+            dispatchProgress();
+            if (done || cancelled) {
+                finish();
+            }
+        }
+
+        @Override
+        public void onDownloadFailed(Exception e) {
+            boolean done;
+            synchronized (BatchSync.this) {
+                failed.add(entries.get(position));
+                done = updated.size() + failed.size() == entries.size();
+            }
+            if (done || cancelled) {
+                finish();
+            }
+        }
+
+        /**
+         * 发送汇总进度
+         */
+        private void dispatchProgress() {
+            if (listener == null) {
+                return;
+            }
+            long progress = 0;
+            for (long value : progresses) {
+                progress += value;
+            }
+            int count;
+            synchronized (BatchSync.this) {
+                count = updated.size();
+            }
+            listener.onSyncProgress(total, progress, count, entries.size());
+        }
+
+    }
+
+}
@@ -0,0 +1,300 @@
+package androidx.io.core.net;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分块增量下载，复用本地旧文件中未变化的块，只通过多范围请求下载变化的块，
+ * 拼装到临时文件，校验通过后替换旧文件。
+ */
+public class BlockDelta {
+
+    public String TAG = BlockDelta.class.getSimpleName();
+    /**
+     * 单次请求最多范围数量
+     */
+    public static final int MAX_RANGES = 32;
+
+    private Command command;
+    private BlockIndex index;
+    private long progress;
+
+    /**
+     * 构建增量下载
+     *
+     * @param command 下载命令
+     * @param index   校验索引
+     */
+    public BlockDelta(Command command, BlockIndex index) {
+        this.command = command;
+        this.index = index;
+    }
+
+    /**
+     * 增量更新文件
+     *
+     * @param file 本地旧文件
+     * @return 是否完成，暂停或取消返回false
+     * @throws IOException
+     */
+    public boolean apply(File file) throws IOException {
+        long[] found = index.match(file);
+        File temp = new File(file.getParentFile(), file.getName() + ".delta");
+        if (temp.exists()) {
+            temp.delete();
+        }
+        List<long[]> ranges = new ArrayList<>();
+        progress = 0;
+        boolean applied = false;
+        try {
+            assemble(file, temp, found, ranges);
+            if (command.isCancel() || command.isPause()) {
+                return false;
+            }
+            if (index.getSHA256() != null && !new DigestVerifier(DigestVerifier.SHA_256, index.getSHA256()).verify(temp)) {
+                //旧文件与索引不一致，删除后重试完整下载
+                file.delete();
+                throw new IOException(DigestVerifier.SHA_256 + " digest mismatch");
+            }
+            if (!file.delete() || !temp.renameTo(file)) {
+                throw new IOException("Rename " + temp.getName() + " failed");
+            }
+            applied = true;
+            return true;
+        } finally {
+            if (!applied) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * 拼装临时文件：复用旧文件中找到的块，下载其余范围
+     *
+     * @param file   本地旧文件
+     * @param temp   临时文件
+     * @param found  每个块在旧文件中的位置，-1表示未找到
+     * @param ranges 需要下载的范围
+     * @throws IOException
+     */
+    private void assemble(File file, File temp, long[] found, List<long[]> ranges) throws IOException {
+        RandomAccessFile source = new RandomAccessFile(file, "r");
+        RandomAccessFile access = null;
+        try {
+            access = new RandomAccessFile(temp, "rw");
+            Command.preallocate(access, temp, index.getLength());
+            FileChannel in = source.getChannel();
+            FileChannel out = access.getChannel();
+            int blockSize = index.getBlockSize();
+            for (int i = 0; i < found.length; i++) {
+                long start = (long) i * blockSize;
+                int length = index.getBlockLength(i);
+                if (found[i] >= 0) {
+                    long count = Math.min(length, file.length() - found[i]);
+                    long copied = 0;
+                    while (copied < count) {
+                        copied += in.transferTo(found[i] + copied, count - copied, out.position(start + copied));
+                    }
+                    progress += length;
+                    continue;
+                }
+                long[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+                if (last != null && last[1] + 1 == start) {
+                    last[1] = start + length - 1;
+                } else {
+                    ranges.add(new long[]{start, start + length - 1});
+                }
+            }
+            Log.i(TAG, "reused: " + progress + "/" + index.getLength() + ", ranges: " + ranges.size());
+            command.getMessenger().send(index.getLength(), progress);
+            for (int i = 0; i < ranges.size() && !command.isCancel() && !command.isPause(); i += MAX_RANGES) {
+                if (fetch(ranges.subList(i, Math.min(ranges.size(), i + MAX_RANGES)), out)) {
+                    break;
+                }
+            }
+        } finally {
+            source.close();
+            if (access != null) {
+                access.close();
+            }
+        }
+    }
+
+    /**
+     * 多范围请求下载变化的块
+     *
+     * @param ranges 范围
+     * @param out    临时文件
+     * @return 服务器忽略范围返回完整文件时为true
+     * @throws IOException
+     */
+    private boolean fetch(List<long[]> ranges, FileChannel out) throws IOException {
+        StringBuilder builder = new StringBuilder("bytes=");
+        for (int i = 0; i < ranges.size(); i++) {
+            builder.append(i == 0 ? "" : ",").append(ranges.get(i)[0]).append("-").append(ranges.get(i)[1]);
+        }
+        HttpURLConnection connection = command.openConnection(-1, -1);
+        connection.setRequestProperty("RANGE", builder.toString());
+        int code = command.connect(connection);
+        Log.i(TAG, "fetch code: " + code + ", " + builder);
+        if (code >= 400) {
+            connection.disconnect();
+            throw new HttpException(code, connection.getResponseMessage());
+        }
+        InputStream is = new BufferedInputStream(connection.getInputStream());
+        try {
+            if (code == HttpURLConnection.HTTP_OK) {
+                progress = 0;
+                copy(is, out, 0, index.getLength());
+                return true;
+            }
+            String contentType = connection.getContentType();
+            String boundary = parseBoundary(contentType);
+            if (boundary == null) {
+                long[] range = parseContentRange(connection.getHeaderField("Content-Range"));
+                copy(is, out, range[0], range[1] - range[0] + 1);
+                return false;
+            }
+            String line;
+            while ((line = readLine(is)) != null) {
+                if (!line.startsWith("--" + boundary)) {
+                    continue;
+                }
+                if (line.startsWith("--" + boundary + "--")) {
+                    break;
+                }
+                long[] range = null;
+                while ((line = readLine(is)) != null && line.length() > 0) {
+                    if (line.toLowerCase().startsWith("content-range:")) {
+                        range = parseContentRange(line.substring(line.indexOf(":") + 1));
+                    }
+                }
+                if (range == null) {
+                    throw new IOException("Missing Content-Range in multipart response");
+                }
+                copy(is, out, range[0], range[1] - range[0] + 1);
+            }
+            return false;
+        } finally {
+            is.close();
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * 写入指定位置
+     *
+     * @param is       输入流
+     * @param out      文件通道
+     * @param position 位置
+     * @param length   长度
+     * @throws IOException
+     */
+    private void copy(InputStream is, FileChannel out, long position, long length) throws IOException {
+        byte[] buffer = new byte[command.getBufferSize()];
+        long remaining = length;
+        while (remaining > 0 && !command.isCancel() && !command.isPause()) {
+            int read = is.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                throw new EOFException("Unexpected end of range at " + (length - remaining) + "/" + length);
+            }
+            command.throttle(read);
+            ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+            while (data.hasRemaining()) {
+                position += out.write(data, position);
+            }
+            remaining -= read;
+            progress += read;
+            if (command.getMetrics() != null) {
+                command.getMetrics().onBytes(read);
+            }
+            command.getMessenger().send(index.getLength(), Math.min(progress, index.getLength()));
+        }
+    }
+
+    /**
+     * 读取分段头的一行
+     *
+     * @param is 输入流
+     * @return 流结束返回null
+     * @throws IOException
+     */
+    private static String readLine(InputStream is) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int value;
+        while ((value = is.read()) != -1) {
+            if (value == '\n') {
+                break;
+            }
+            if (value != '\r') {
+                builder.append((char) value);
+            }
+        }
+        if (value == -1 && builder.length() == 0) {
+            return null;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 解析multipart/byteranges的分隔符
+     *
+     * @param contentType 内容类型
+     * @return 非多范围响应返回null
+     */
+    public static String parseBoundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase().startsWith("multipart/byteranges")) {
+            return null;
+        }
+        int index = contentType.indexOf("boundary=");
+        if (index < 0) {
+            return null;
+        }
+        String boundary = contentType.substring(index + "boundary=".length()).trim();
+        if (boundary.contains(";")) {
+            boundary = boundary.substring(0, boundary.indexOf(";")).trim();
+        }
+        if (boundary.startsWith("\"") && boundary.endsWith("\"") && boundary.length() > 1) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+        return boundary;
+    }
+
+    /**
+     * 解析Content-Range中的范围
+     *
+     * @param contentRange 例如：bytes 0-1023/4096
+     * @return 开始和结束位置（包含）
+     * @throws IOException 格式错误
+     */
+    public static long[] parseContentRange(String contentRange) throws IOException {
+        if (contentRange != null) {
+            String value = contentRange.trim();
+            if (value.startsWith("bytes")) {
+                value = value.substring("bytes".length()).trim();
+            }
+            int dash = value.indexOf("-");
+            int slash = value.indexOf("/");
+            if (dash > 0 && slash > dash) {
+                try {
+                    return new long[]{Long.parseLong(value.substring(0, dash).trim()), Long.parseLong(value.substring(dash + 1, slash).trim())};
+                } catch (NumberFormatException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        throw new IOException("Invalid Content-Range " + contentRange);
+    }
+
+}
@@ -0,0 +1,380 @@
+package androidx.io.core.net;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件分块校验索引，类似zsync，用于只下载变化的块。
+ * 格式：文本头（每行“键: 值”，包含Blocksize、Length，可选SHA-256），空行，
+ * 之后每块依次为4字节滚动校验（大端）和16字节MD5，最后一块不足块大小时补0计算。
+ */
+public class BlockIndex {
+
+    /**
+     * 默认块大小
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+    /**
+     * 强校验长度
+     */
+    public static final int STRONG_LENGTH = 16;
+
+    private int blockSize;
+    private long length;
+    private String sha256;
+    private int[] weaks;
+    private byte[][] strongs;
+
+    /**
+     * 构建校验索引
+     *
+     * @param blockSize 块大小
+     * @param length    文件大小
+     * @param sha256    文件SHA-256，可为null
+     * @param weaks     每块滚动校验
+     * @param strongs   每块MD5
+     */
+    public BlockIndex(int blockSize, long length, String sha256, int[] weaks, byte[][] strongs) {
+        this.blockSize = blockSize;
+        this.length = length;
+        this.sha256 = sha256;
+        this.weaks = weaks;
+        this.strongs = strongs;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public String getSHA256() {
+        return sha256;
+    }
+
+    /**
+     * 获取块数量
+     *
+     * @return
+     */
+    public int getBlockCount() {
+        return weaks.length;
+    }
+
+    /**
+     * 获取块在文件中的长度，最后一块可能不足块大小
+     *
+     * @param block 块序号
+     * @return
+     */
+    public int getBlockLength(int block) {
+        return (int) Math.min(blockSize, length - (long) block * blockSize);
+    }
+
+    /**
+     * 读取校验索引
+     *
+     * @param is 输入流
+     * @return
+     * @throws IOException 格式错误
+     */
+    public static BlockIndex read(InputStream is) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(is));
+        int blockSize = -1;
+        long length = -1;
+        String sha256 = null;
+        String line;
+        while ((line = readLine(dis)) != null && line.length() > 0) {
+            int index = line.indexOf(":");
+            if (index <= 0) {
+                continue;
+            }
+            String key = line.substring(0, index).trim();
+            String value = line.substring(index + 1).trim();
+            if (key.equalsIgnoreCase("Blocksize")) {
+                blockSize = Integer.parseInt(value);
+            } else if (key.equalsIgnoreCase("Length")) {
+                length = Long.parseLong(value);
+            } else if (key.equalsIgnoreCase("SHA-256")) {
+                sha256 = value;
+            }
+        }
+        if (blockSize <= 0 || length < 0) {
+            throw new IOException("Invalid block index header");
+        }
+        long count = (length + blockSize - 1) / blockSize;
+        if (count > Integer.MAX_VALUE) {
+            throw new IOException("Too many blocks " + count);
+        }
+        int[] weaks = new int[(int) count];
+        byte[][] strongs = new byte[(int) count][];
+        for (int i = 0; i < count; i++) {
+            weaks[i] = dis.readInt();
+            strongs[i] = new byte[STRONG_LENGTH];
+            dis.readFully(strongs[i]);
+        }
+        return new BlockIndex(blockSize, length, sha256, weaks, strongs);
+    }
+
+    /**
+     * 读取文本头的一行
+     *
+     * @param dis 输入流
+     * @return 流结束返回null
+     * @throws IOException
+     */
+    private static String readLine(DataInputStream dis) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int value;
+        while ((value = dis.read()) != -1) {
+            if (value == '\n') {
+                break;
+            }
+            if (value != '\r') {
+                builder.append((char) value);
+            }
+        }
+        if (value == -1 && builder.length() == 0) {
+            return null;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 生成文件的校验索引，用于服务器端发布
+     *
+     * @param file      文件
+     * @param blockSize 块大小
+     * @param os        输出流
+     * @throws IOException
+     */
+    public static void write(File file, int blockSize, OutputStream os) throws IOException {
+        MessageDigest md5 = newMD5();
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance(DigestVerifier.SHA_256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Unsupported digest algorithm " + DigestVerifier.SHA_256);
+        }
+        DataOutputStream dos = new DataOutputStream(os);
+        List<byte[]> blocks = new ArrayList<>();
+        byte[] block = new byte[blockSize];
+        InputStream is = new BufferedInputStream(new FileInputStream(file));
+        try {
+            int length;
+            while ((length = readBlock(is, block)) > 0) {
+                sha256.update(block, 0, length);
+                Arrays.fill(block, length, blockSize, (byte) 0);
+                byte[] item = new byte[4 + STRONG_LENGTH];
+                int weak = weak(block, 0, blockSize);
+                item[0] = (byte) (weak >>> 24);
+                item[1] = (byte) (weak >>> 16);
+                item[2] = (byte) (weak >>> 8);
+                item[3] = (byte) weak;
+                md5.reset();
+                md5.update(block, 0, blockSize);
+                System.arraycopy(md5.digest(), 0, item, 4, STRONG_LENGTH);
+                blocks.add(item);
+            }
+        } finally {
+            is.close();
+        }
+        StringBuilder header = new StringBuilder();
+        header.append("Blocksize: ").append(blockSize).append("\n");
+        header.append("Length: ").append(file.length()).append("\n");
+        header.append("SHA-256: ").append(toHex(sha256.digest())).append("\n\n");
+        dos.write(header.toString().getBytes("UTF-8"));
+        for (byte[] item : blocks) {
+            dos.write(item);
+        }
+        dos.flush();
+    }
+
+    /**
+     * 读取一块，直到块满或流结束
+     *
+     * @param is    输入流
+     * @param block 块
+     * @return 读取长度
+     * @throws IOException
+     */
+    private static int readBlock(InputStream is, byte[] block) throws IOException {
+        int length = 0;
+        int read;
+        while (length < block.length && (read = is.read(block, length, block.length - length)) != -1) {
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * 在本地旧文件中查找与索引一致的块
+     *
+     * @param file 本地文件
+     * @return 每块在本地文件中的位置，未找到为-1
+     * @throws IOException
+     */
+    public long[] match(File file) throws IOException {
+        long[] found = new long[weaks.length];
+        Arrays.fill(found, -1);
+        long size = file.length();
+        if (size == 0 || size > Integer.MAX_VALUE) {
+            return found;
+        }
+        Map<Integer, List<Integer>> table = new HashMap<>();
+        for (int i = 0; i < weaks.length; i++) {
+            List<Integer> blocks = table.get(weaks[i]);
+            if (blocks == null) {
+                blocks = new ArrayList<>();
+                table.put(weaks[i], blocks);
+            }
+            blocks.add(i);
+        }
+        //位图预过滤，大多数窗口的弱校验不在索引中，不用装箱查表
+        int bits = 10;
+        while (bits < 30 && (1 << bits) < weaks.length * 8) {
+            bits++;
+        }
+        int shift = 32 - bits;
+        long[] filter = new long[1 << (bits - 6)];
+        for (int weak : weaks) {
+            int slot = (weak * 0x9E3779B9) >>> shift;
+            filter[slot >>> 6] |= 1L << slot;
+        }
+        MessageDigest md5 = newMD5();
+        byte[] window = new byte[blockSize];
+        RandomAccessFile access = new RandomAccessFile(file, "r");
+        try {
+            MappedByteBuffer map = access.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int end = (int) size;
+            int offset = 0;
+            int a = 0;
+            int b = 0;
+            boolean fresh = true;
+            while (offset < end) {
+                if (fresh) {
+                    a = 0;
+                    b = 0;
+                    for (int i = 0; i < blockSize; i++) {
+                        int x = byteAt(map, offset + i, end);
+                        a += x;
+                        b += (blockSize - i) * x;
+                    }
+                    fresh = false;
+                }
+                int weak = (a & 0xffff) | (b << 16);
+                int slot = (weak * 0x9E3779B9) >>> shift;
+                List<Integer> blocks = (filter[slot >>> 6] & (1L << slot)) == 0 ? null : table.get(weak);
+                boolean matched = false;
+                if (blocks != null) {
+                    for (int i = 0; i < blockSize; i++) {
+                        window[i] = (byte) byteAt(map, offset + i, end);
+                    }
+                    md5.reset();
+                    md5.update(window);
+                    byte[] strong = md5.digest();
+                    for (int block : blocks) {
+                        if (found[block] == -1 && MessageDigest.isEqual(strong, strongs[block])) {
+                            found[block] = offset;
+                            matched = true;
+                        }
+                    }
+                }
+                if (matched) {
+                    offset += blockSize;
+                    fresh = true;
+                } else {
+                    int out = byteAt(map, offset, end);
+                    int in = byteAt(map, offset + blockSize, end);
+                    a += in - out;
+                    b += a - blockSize * out;
+                    offset++;
+                }
+            }
+        } finally {
+            access.close();
+        }
+        return found;
+    }
+
+    /**
+     * 读取字节，超出文件长度视为0
+     *
+     * @param map    文件映射
+     * @param offset 位置
+     * @param end    文件长度
+     * @return
+     */
+    private static int byteAt(MappedByteBuffer map, int offset, int end) {
+        if (offset < 0 || offset >= end) {
+            return 0;
+        }
+        return map.get(offset) & 0xff;
+    }
+
+    /**
+     * 计算滚动校验
+     *
+     * @param data   数据
+     * @param off    开始位置
+     * @param length 长度
+     * @return
+     */
+    public static int weak(byte[] data, int off, int length) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            int x = data[off + i] & 0xff;
+            a += x;
+            b += (length - i) * x;
+        }
+        return (a & 0xffff) | (b << 16);
+    }
+
+    /**
+     * 获取块MD5
+     *
+     * @return
+     * @throws IOException
+     */
+    private static MessageDigest newMD5() throws IOException {
+        try {
+            return MessageDigest.getInstance(DigestVerifier.MD5);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Unsupported digest algorithm " + DigestVerifier.MD5);
+        }
+    }
+
+    /**
+     * 转十六进制
+     *
+     * @param bytes 字节
+     * @return
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte value : bytes) {
+            builder.append(String.format("%02x", value & 0xff));
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,59 @@
+package androidx.io.core.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 下载缓冲池，复用直接内存缓冲，避免每次下载重新分配
+ */
+public class BufferPool {
+
+    /**
+     * 最大缓存数量
+     */
+    public static final int MAX_POOL_SIZE = 8;
+
+    private static final List<ByteBuffer> buffers = new ArrayList<>();
+
+    private BufferPool() {
+
+    }
+
+    /**
+     * 获取缓冲
+     *
+     * @param capacity 容量
+     * @return 已清空的缓冲
+     */
+    public static ByteBuffer acquire(int capacity) {
+        synchronized (buffers) {
+            for (int i = buffers.size() - 1; i >= 0; i--) {
+                if (buffers.get(i).capacity() == capacity) {
+                    ByteBuffer buffer = buffers.remove(i);
+                    buffer.clear();
+                    return buffer;
+                }
+            }
+        }
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * 归还缓冲
+     *
+     * @param buffer 缓冲
+     */
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        buffer.clear();
+        synchronized (buffers) {
+            if (buffers.size() < MAX_POOL_SIZE) {
+                buffers.add(buffer);
+            }
+        }
+    }
+
+}
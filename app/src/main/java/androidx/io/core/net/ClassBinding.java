@@ -0,0 +1,402 @@
+package androidx.io.core.net;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 类绑定信息，每个类只反射解析一次字段、泛型参数、构造方法和类型分类，线程安全；
+ * 有编译时生成的编解码器时优先使用，字段在首次使用时才解析
+ */
+public class ClassBinding {
+
+    /**
+     * 基础类型
+     */
+    public static final int CATEGORY_PRIMITIVE = 0;
+    /**
+     * 集合
+     */
+    public static final int CATEGORY_COLLECTION = 1;
+    /**
+     * 数组
+     */
+    public static final int CATEGORY_ARRAY = 2;
+    /**
+     * Map
+     */
+    public static final int CATEGORY_MAP = 3;
+    /**
+     * JSONObject、JSONArray
+     */
+    public static final int CATEGORY_JSON = 4;
+    /**
+     * 普通类
+     */
+    public static final int CATEGORY_BEAN = 5;
+
+    private static final Map<Class<?>, ClassBinding> bindings = new ConcurrentHashMap<>();
+    private static Set<String> predefined;
+
+    private Class<?> type;
+    private int category;
+    private JSONCodec<Object> codec;
+    private volatile boolean resolved;
+    private Constructor<?> constructor;
+    private Field[] fields;
+    private Map<String, FieldBinding> fieldMap;
+    private Map<String, Field> declaredMap;
+    private FieldBinding[] properties;
+
+    private ClassBinding(Class<?> type) {
+        this.type = type;
+        this.category = categoryOf(type);
+        if (category == CATEGORY_BEAN) {
+            codec = loadCodec(type);
+        }
+    }
+
+    /**
+     * 加载编译时生成的编解码器
+     *
+     * @param type 类
+     * @return 没有生成时返回null
+     */
+    private static JSONCodec<Object> loadCodec(Class<?> type) {
+        try {
+            Class<?> clazz = Class.forName(type.getName() + "$$JSONCodec", true, type.getClassLoader());
+            return (JSONCodec<Object>) clazz.newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (InstantiationException | IllegalAccessException | ClassCastException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 解析字段和构造方法，首次使用时执行，使用编解码器时不解析
+     */
+    private void resolve() {
+        if (!resolved) {
+            resolveFields();
+        }
+    }
+
+    private synchronized void resolveFields() {
+        if (resolved) {
+            return;
+        }
+        List<Field> list = new ArrayList<>();
+        Class<?> clazz = category == CATEGORY_BEAN ? type : null;
+        while (clazz != null) {
+            for (Field field : clazz.getDeclaredFields()) {
+                try {
+                    field.setAccessible(true);
+                    list.add(field);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+        this.fields = list.toArray(new Field[list.size()]);
+        this.fieldMap = new HashMap<>();
+        this.declaredMap = new HashMap<>();
+        List<FieldBinding> properties = new ArrayList<>();
+        for (Field field : fields) {
+            if (!declaredMap.containsKey(field.getName())) {
+                declaredMap.put(field.getName(), field);
+            }
+            //有编译时生成的编解码器时，静态字段和transient字段不读写，与编解码器一致
+            int modifiers = field.getModifiers();
+            if (codec != null && (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers))) {
+                continue;
+            }
+            FieldBinding binding = new FieldBinding(field);
+            if (!fieldMap.containsKey(field.getName())) {
+                fieldMap.put(field.getName(), binding);
+            }
+            if (!isPredefined(field.getName())) {
+                properties.add(binding);
+            }
+        }
+        this.properties = properties.toArray(new FieldBinding[properties.size()]);
+        if (category == CATEGORY_BEAN && !type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+            try {
+                constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                Constructor<?>[] constructors = type.getDeclaredConstructors();
+                if (constructors.length > 0) {
+                    constructor = constructors[0];
+                    constructor.setAccessible(true);
+                }
+            }
+        }
+        resolved = true;
+    }
+
+    /**
+     * 获取类绑定信息，首次获取时解析
+     *
+     * @param type 类
+     * @return
+     */
+    public static ClassBinding of(Class<?> type) {
+        ClassBinding binding = bindings.get(type);
+        if (binding == null) {
+            binding = new ClassBinding(type);
+            ClassBinding previous = bindings.putIfAbsent(type, binding);
+            if (previous != null) {
+                binding = previous;
+            }
+        }
+        return binding;
+    }
+
+    /**
+     * 获取类型分类
+     *
+     * @param type 类
+     * @return {@link #CATEGORY_PRIMITIVE}、{@link #CATEGORY_COLLECTION}、{@link #CATEGORY_ARRAY}、
+     * {@link #CATEGORY_MAP}、{@link #CATEGORY_JSON}、{@link #CATEGORY_BEAN}
+     */
+    public static int categoryOf(Class<?> type) {
+        if (JSON.isPrimitive(type)) {
+            return CATEGORY_PRIMITIVE;
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return CATEGORY_COLLECTION;
+        }
+        if (type.isArray()) {
+            return CATEGORY_ARRAY;
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return CATEGORY_MAP;
+        }
+        if (org.json.JSONObject.class.isAssignableFrom(type) || org.json.JSONArray.class.isAssignableFrom(type)) {
+            return CATEGORY_JSON;
+        }
+        return CATEGORY_BEAN;
+    }
+
+    /**
+     * 是否预定义字段，例如Object声明的字段、serialVersionUID
+     *
+     * @param name 字段名称
+     * @return
+     */
+    public static boolean isPredefined(String name) {
+        Set<String> names = predefined;
+        if (names == null) {
+            names = new HashSet<>();
+            for (Field field : Object.class.getDeclaredFields()) {
+                names.add(field.getName());
+            }
+            names.add("$change");
+            names.add("serialVersionUID");
+            names.add("NULL");
+            names.add("NEGATIVE_ZERO");
+            predefined = names;
+        }
+        return names.contains(name);
+    }
+
+    /**
+     * 获取泛型参数类型
+     *
+     * @param type  泛型类型
+     * @param index 参数位置
+     * @return 不是类时返回null
+     */
+    public static Class<?> argumentOf(Type type, int index) {
+        if (!(type instanceof ParameterizedType)) {
+            return null;
+        }
+        Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+        if (index >= arguments.length) {
+            return null;
+        }
+        return rawOf(arguments[index]);
+    }
+
+    /**
+     * 获取类型的原始类
+     *
+     * @param type 类型
+     * @return 无法确定时返回null
+     */
+    public static Class<?> rawOf(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return rawOf(((ParameterizedType) type).getRawType());
+        }
+        if (type instanceof GenericArrayType) {
+            Class<?> component = rawOf(((GenericArrayType) type).getGenericComponentType());
+            return component == null ? null : java.lang.reflect.Array.newInstance(component, 0).getClass();
+        }
+        return null;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public int getCategory() {
+        return category;
+    }
+
+    /**
+     * 获取编译时生成的编解码器，见{@link JSONClass}
+     *
+     * @return 没有生成时返回null
+     */
+    public JSONCodec<Object> getCodec() {
+        return codec;
+    }
+
+    /**
+     * 获取本类及父类声明的字段，只解析普通类
+     *
+     * @return
+     */
+    public Field[] getFields() {
+        resolve();
+        return fields;
+    }
+
+    /**
+     * 获取声明的字段，包含父类、静态字段和transient字段，同名字段优先本类
+     *
+     * @param name 字段名称
+     * @return 没有返回null
+     */
+    public Field getDeclaredField(String name) {
+        resolve();
+        return name == null ? null : declaredMap.get(name);
+    }
+
+    /**
+     * 获取字段绑定，同名字段优先本类，有编解码器时不包含静态字段和transient字段
+     *
+     * @param name 字段名称
+     * @return 没有返回null
+     */
+    public FieldBinding getField(String name) {
+        resolve();
+        return name == null ? null : fieldMap.get(name);
+    }
+
+    /**
+     * 获取需要序列化的字段，不包含预定义字段，有编解码器时不包含静态字段和transient字段
+     *
+     * @return
+     */
+    public FieldBinding[] getProperties() {
+        resolve();
+        return properties;
+    }
+
+    /**
+     * 创建实例，优先使用无参构造方法
+     *
+     * @return 创建失败返回null
+     */
+    public Object newInstance() {
+        resolve();
+        try {
+            if (constructor == null) {
+                return type.newInstance();
+            }
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 字段绑定信息
+     */
+    public static class FieldBinding {
+
+        private Field field;
+        private String name;
+        private String quotedName;
+        private Class<?> type;
+        private Type genericType;
+        private int category;
+        private Class<?> elementType;
+
+        FieldBinding(Field field) {
+            this.field = field;
+            this.name = field.getName();
+            this.quotedName = JSONWriter.quote(name) + ":";
+            this.type = field.getType();
+            this.genericType = field.getGenericType();
+            this.category = categoryOf(type);
+            if (category == CATEGORY_COLLECTION) {
+                elementType = argumentOf(genericType, 0);
+            } else if (category == CATEGORY_ARRAY) {
+                elementType = type.getComponentType();
+            } else if (category == CATEGORY_MAP) {
+                elementType = argumentOf(genericType, 1);
+            }
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 获取已转义的名称，带引号和冒号，写入JSON时直接使用
+         *
+         * @return
+         */
+        public String getQuotedName() {
+            return quotedName;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public Type getGenericType() {
+            return genericType;
+        }
+
+        public int getCategory() {
+            return category;
+        }
+
+        /**
+         * 获取元素类型：集合的泛型参数、数组的组件类型、Map的值类型
+         *
+         * @return 未知返回null
+         */
+        public Class<?> getElementType() {
+            return elementType;
+        }
+
+    }
+
+}
@@ -1,21 +1,37 @@
 package androidx.io.core.net;
 
 import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.os.StatFs;
+import android.os.SystemClock;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
 import android.util.Log;
 
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.ProtocolException;
 import java.net.URL;
-import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 
 import javax.net.ssl.HttpsURLConnection;
 
@@ -26,166 +42,1256 @@ public class Command implements Runnable {
 
     public String TAG = Command.class.getSimpleName();
 
+    /**
+     * 默认读取缓冲大小
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /**
+     * 默认对冲延迟
+     */
+    public static final long DEFAULT_HEDGE_DELAY = 1000;
+    /**
+     * 自适应缓冲最大值
+     */
+    public static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
     private Context context;
     private String url;
     private boolean override;
-    private boolean pause;
-    private boolean cancel;
+    private volatile boolean pause;
+    private volatile boolean cancel;
+    private volatile boolean finished;
+    private volatile boolean suspended;
+    private HttpCache cache;
+    private RetryPolicy retryPolicy;
+    private DigestVerifier digestVerifier;
+    private RateLimiter rateLimiter;
+    private OnDownloadMetricsListener metricsListener;
+    private DownloadMetrics metrics;
+    private DownloadConsumer consumer;
+    private boolean saveFile = true;
+    private ZipExtractor extractor;
+    private String blockIndexUrl;
+    private List<String> mirrors;
+    private long hedgeDelay;
+    private int connectTimeout;
+    private int readTimeout;
+    private DigestVerifier verifier;
+    private boolean captured;
+    private String etag;
+    private String lastModified;
+    private long expires;
     private String dirName = "Download";
+    private File target;
+    private MediaStoreTarget mediaTarget;
     private long totalSize = 0;
+    private long written;
     private Messenger messenger;
     private Map<String, String> headers;
+    private int segments = 1;
+    private int maxSegments = 1;
+    private boolean adaptive = true;
+    private ThroughputEstimator estimator = new ThroughputEstimator();
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private ExecutorService service;
+
+    public Command(Context context, String url) {
+        this.context = context;
+        this.url = url;
+        headers = new HashMap<>();
+        messenger = new Messenger();
+        messenger.setEstimator(estimator);
+    }
+
+    /**
+     * 设置下载缓存路径的文件夹名
+     *
+     * @param dirName
+     */
+    public void setDirName(String dirName) {
+        this.dirName = dirName;
+    }
+
+    /**
+     * 获取文件夹
+     *
+     * @return
+     */
+    public File getDir() {
+        return new File(context.getExternalCacheDir(), dirName);
+    }
+
+    /**
+     * 获取下载的文件
+     *
+     * @param url 资源链接
+     * @return
+     */
+    public File getFile(String url) {
+        if (target != null) {
+            return target;
+        }
+        return new File(getDir(), createFileName(url));
+    }
+
+    /**
+     * 设置下载的目标文件，设置后不再使用缓存文件夹和链接文件名
+     *
+     * @param target 目标文件
+     */
+    public void setTarget(File target) {
+        this.target = target;
+    }
+
+    /**
+     * 设置MediaStore下载目标，数据直接写入媒体库，不使用缓存文件、缓存和分段，
+     * 完成并校验后发布条目，失败或取消时删除条目，暂停时保留用于续传
+     *
+     * @param mediaTarget 媒体库目标
+     */
+    public void setMediaTarget(MediaStoreTarget mediaTarget) {
+        this.mediaTarget = mediaTarget;
+    }
+
+    /**
+     * 获取MediaStore下载目标
+     *
+     * @return
+     */
+    public MediaStoreTarget getMediaTarget() {
+        return mediaTarget;
+    }
+
+    /**
+     * 是否覆盖下载
+     *
+     * @return
+     */
+    public boolean isOverride() {
+        return override;
+    }
+
+    /**
+     * 设置是否覆盖下载
+     *
+     * @param override
+     */
+    public void setOverride(boolean override) {
+        this.override = override;
+    }
+
+    /**
+     * 取消下载
+     */
+    public void cancel() {
+        this.cancel = true;
+    }
+
+    /**
+     * 是否取消
+     *
+     * @return
+     */
+    public boolean isCancel() {
+        return cancel;
+    }
+
+    /**
+     * 暂停
+     */
+    public void pause() {
+        this.pause = true;
+        this.suspended = false;
+    }
+
+    /**
+     * 恢复执行状态，清除暂停、取消和挂起，开始或重新排队前调用；
+     * 执行时不再清除，排队期间的取消、挂起不会丢失
+     */
+    public void resume() {
+        this.cancel = false;
+        this.pause = false;
+        this.suspended = false;
+    }
+
+    /**
+     * 挂起，暂停当前下载并等待调度器重新执行，挂起期间仍视为下载中
+     */
+    public void suspend() {
+        this.suspended = true;
+        this.pause = true;
+    }
+
+    /**
+     * 是否下载中（含排队、挂起），完成、失败、取消、暂停都不算下载中
+     *
+     * @return
+     */
+    public boolean isActive() {
+        return !finished && !cancel && (!pause || suspended);
+    }
+
+    /**
+     * 是否可以把相同标识的另一个下载合并到此下载，
+     * 影响文件内容、校验、连接和指标的设置一致时才合并，否则各自下载
+     *
+     * @param other 另一个下载
+     * @return
+     */
+    public boolean isMergeable(Command other) {
+        boolean digest = digestVerifier == null ? other.digestVerifier == null : digestVerifier.isSame(other.digestVerifier);
+        return digest && !other.override
+                && cache == other.cache
+                && rateLimiter == other.rateLimiter
+                && (retryPolicy == null) == (other.retryPolicy == null)
+                && other.metricsListener == null
+                && segments == other.segments
+                && Objects.equals(blockIndexUrl, other.blockIndexUrl)
+                && Objects.equals(mirrors, other.mirrors);
+    }
+
+    /**
+     * 是否被调度器挂起
+     *
+     * @return
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * 获取下载标识，由资源链接、Header和缓存文件夹（或目标文件）组成，相同标识的下载写入同一文件
+     *
+     * @return
+     */
+    public String getKey() {
+        String destination = mediaTarget != null ? String.valueOf(mediaTarget.getUri()) : (target != null ? target : getDir()).getAbsolutePath();
+        return url + "|" + new TreeMap<>(headers) + "|" + destination;
+    }
+
+    /**
+     * 是否暂停
+     *
+     * @return
+     */
+    public boolean isPause() {
+        return pause;
+    }
+
+    /**
+     * 是否下载结束（完成或失败），暂停、取消不算结束
+     *
+     * @return
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * 获取资源链接
+     *
+     * @return
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * 下载完成
+     *
+     * @param file 文件
+     */
+    private void completed(File file) {
+        finished = true;
+        if (metrics != null) {
+            metrics.onFinish(DownloadMetrics.STATUS_COMPLETED, null);
+        }
+        if (cache != null && captured) {
+            cache.put(getKey(), file, etag, lastModified, expires);
+        }
+        messenger.send(file);
+    }
+
+    /**
+     * 下载到媒体库完成
+     *
+     * @param uri 内容Uri
+     */
+    private void completed(Uri uri) {
+        finished = true;
+        if (metrics != null) {
+            metrics.onFinish(DownloadMetrics.STATUS_COMPLETED, null);
+        }
+        messenger.send(uri);
+    }
+
+    /**
+     * 下载失败
+     *
+     * @param e 异常
+     */
+    private void failed(Exception e) {
+        finished = true;
+        discardMedia();
+        if (metrics != null) {
+            metrics.onFinish(DownloadMetrics.STATUS_FAILED, e);
+        }
+        messenger.send(e);
+    }
+
+    /**
+     * 删除未完成的媒体库条目，避免失败或取消后留下待定条目
+     */
+    private void discardMedia() {
+        if (mediaTarget == null) {
+            return;
+        }
+        try {
+            mediaTarget.delete();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 添加Header
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public void addHeader(String key, String value) {
+        headers.put(key, value);
+    }
+
+    /**
+     * 设置下载监听
+     *
+     * @param listener
+     */
+    public void setOnDownloadListener(OnDownloadListener listener) {
+        messenger.setOnDownloadListener(listener);
+    }
+
+    /**
+     * 获取消息发送者
+     *
+     * @return
+     */
+    public Messenger getMessenger() {
+        return messenger;
+    }
+
+    /**
+     * 设置分段数量，大于1时使用多连接分段下载
+     *
+     * @param segments 分段数量
+     */
+    public void setSegments(int segments) {
+        this.segments = Math.max(1, segments);
+    }
+
+    /**
+     * 获取分段数量
+     *
+     * @return
+     */
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * 设置读取缓冲大小
+     *
+     * @param bufferSize 缓冲大小（字节）
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = Math.max(1024, bufferSize);
+    }
+
+    /**
+     * 获取读取缓冲大小
+     *
+     * @return
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 设置最大分段数量，分段下载中增加连接后吞吐量仍在增长时继续增加连接，直到最大数量
+     *
+     * @param maxSegments 最大分段数量
+     */
+    public void setMaxSegments(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * 获取最大分段数量
+     *
+     * @return 不小于分段数量
+     */
+    public int getMaxSegments() {
+        return Math.max(segments, maxSegments);
+    }
+
+    /**
+     * 设置是否按吞吐量自适应调整缓冲和分段，默认开启
+     *
+     * @param adaptive 是否自适应
+     */
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * 是否自适应
+     *
+     * @return
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * 获取吞吐量估算
+     *
+     * @return
+     */
+    public ThroughputEstimator getEstimator() {
+        return estimator;
+    }
+
+    /**
+     * 设置HTTP缓存，已下载的文件过期后向服务器确认，未修改时不再下载
+     *
+     * @param cache 缓存
+     */
+    public void setCache(HttpCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * 设置重试策略，失败后从已下载的位置继续
+     *
+     * @param retryPolicy 重试策略，null不重试
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * 设置期望摘要，下载时同步计算，校验一致后才完成
+     *
+     * @param algorithm 算法，例如{@link DigestVerifier#SHA_256}
+     * @param expected  期望摘要，十六进制或Base64
+     */
+    public void setDigest(String algorithm, String expected) {
+        this.digestVerifier = expected == null ? null : new DigestVerifier(algorithm, expected);
+    }
+
+    /**
+     * 设置下载限速器，与全局限速器{@link RateLimiter#getGlobal()}同时生效
+     *
+     * @param rateLimiter 限速器
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * 统计吞吐量，按全局和当前下载的限速等待
+     *
+     * @param bytes 读取的字节数
+     * @throws IOException 等待被中断
+     */
+    public void throttle(int bytes) throws IOException {
+        estimator.onBytes(bytes);
+        RateLimiter.getGlobal().acquire(bytes);
+        if (rateLimiter != null) {
+            rateLimiter.acquire(bytes);
+        }
+    }
+
+    /**
+     * 设置下载指标监听，每次下载结束后在下载线程回调
+     *
+     * @param listener 指标监听，例如{@link MetricsAggregator#getDefault()}
+     */
+    public void setOnDownloadMetricsListener(OnDownloadMetricsListener listener) {
+        this.metricsListener = listener;
+    }
+
+    /**
+     * 获取当前下载指标
+     *
+     * @return 未设置指标监听时返回null
+     */
+    public DownloadMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 连接并获取状态码，记录连接、TLS握手和首字节耗时
+     *
+     * @param connection 连接
+     * @return 状态码
+     * @throws IOException
+     */
+    public int connect(HttpURLConnection connection) throws IOException {
+        DownloadMetrics metrics = this.metrics;
+        long start = System.nanoTime();
+        HttpsSSLSocketFactory.track(metrics);
+        try {
+            connection.connect();
+        } finally {
+            HttpsSSLSocketFactory.track(null);
+        }
+        long connected = System.nanoTime();
+        int code = connection.getResponseCode();
+        if (metrics != null) {
+            metrics.onConnected((connected - start) / 1000000, (System.nanoTime() - start) / 1000000);
+        }
+        return code;
+    }
+
+    /**
+     * 设置数据消费者，下载数据按顺序推送给消费者，使用消费者时不分段下载
+     *
+     * @param consumer 消费者
+     * @param saveFile 是否同时保存文件，false时只推送数据，不写文件，不续传
+     */
+    public void setConsumer(DownloadConsumer consumer, boolean saveFile) {
+        this.consumer = consumer;
+        this.saveFile = consumer == null || saveFile;
+    }
+
+    /**
+     * 获取数据消费者
+     *
+     * @return
+     */
+    public DownloadConsumer getConsumer() {
+        return consumer;
+    }
+
+    /**
+     * 设置解压器，压缩包边下载边解压，不保存压缩包，完成回调的文件为解压文件夹
+     *
+     * @param extractor 解压器
+     */
+    public void setExtractor(ZipExtractor extractor) {
+        this.extractor = extractor;
+    }
+
+    /**
+     * 获取解压器
+     *
+     * @return
+     */
+    public ZipExtractor getExtractor() {
+        return extractor;
+    }
+
+    /**
+     * 设置分块校验索引地址，本地已有旧文件时只下载变化的块，索引格式见{@link BlockIndex}
+     *
+     * @param blockIndexUrl 索引地址
+     */
+    public void setBlockIndex(String blockIndexUrl) {
+        this.blockIndexUrl = blockIndexUrl;
+    }
+
+    /**
+     * 设置镜像地址和对冲延迟，首字节超过延迟未到达时向下一个镜像发起请求，先响应的胜出
+     *
+     * @param mirrors    镜像地址
+     * @param hedgeDelay 对冲延迟（毫秒），小于等于0时使用{@link MetricsAggregator#getDefault()}首字节耗时P95
+     */
+    public void setMirrors(List<String> mirrors, long hedgeDelay) {
+        this.mirrors = mirrors;
+        this.hedgeDelay = hedgeDelay;
+    }
+
+    /**
+     * 获取对冲延迟
+     *
+     * @return 毫秒
+     */
+    public long getHedgeDelay() {
+        if (hedgeDelay > 0) {
+            return hedgeDelay;
+        }
+        long p95 = MetricsAggregator.getDefault().getPercentile(MetricsAggregator.FIRST_BYTE, 95);
+        return p95 > 0 ? p95 : DEFAULT_HEDGE_DELAY;
+    }
+
+    /**
+     * 设置连接超时
+     *
+     * @param connectTimeout 毫秒，0表示系统默认
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * 设置读取超时
+     *
+     * @param readTimeout 毫秒，0表示系统默认
+     */
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * 设置分段下载服务
+     *
+     * @param service
+     */
+    public void setService(ExecutorService service) {
+        this.service = service;
+    }
+
+    /**
+     * 打开连接
+     *
+     * @param start 开始位置，小于0表示不设置RANGE
+     * @param end   结束位置（包含），小于0表示到文件末尾
+     * @return
+     * @throws IOException
+     */
+    public HttpURLConnection openConnection(long start, long end) throws IOException {
+        return openConnection(url, start, end);
+    }
+
+    /**
+     * 打开指定地址的连接
+     *
+     * @param url   地址
+     * @param start 开始位置，小于0表示不设置RANGE
+     * @param end   结束位置（包含），小于0表示到文件末尾
+     * @return
+     * @throws IOException
+     */
+    public HttpURLConnection openConnection(String url, long start, long end) throws IOException {
+        URL httpUrl = new URL(url);
+        HttpURLConnection connection = (HttpURLConnection) httpUrl.openConnection();
+        if (url.toUpperCase().startsWith("HTTPS")) {
+            HttpsURLConnection httpsURLConnection = (HttpsURLConnection) connection;
+            httpsURLConnection.setHostnameVerifier(new HttpsHostnameVerifier());
+            httpsURLConnection.setSSLSocketFactory(HttpsSSLSocketFactory.factory());
+        }
+        if (connectTimeout > 0) {
+            connection.setConnectTimeout(connectTimeout);
+        }
+        if (readTimeout > 0) {
+            connection.setReadTimeout(readTimeout);
+        }
+        connection.setDoInput(true);
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("Charset", "UTF-8");
+        if (start >= 0) {
+            connection.setRequestProperty("RANGE", "bytes=" + start + "-" + (end < 0 ? "" : String.valueOf(end)));
+        }
+        String ifRange = getIfRange();
+        if (start > 0 && ifRange != null) {
+            connection.setRequestProperty("If-Range", ifRange);
+        }
+        if (headers != null) {
+            for (String key : headers.keySet()) {
+                connection.setRequestProperty(key, headers.get(key));
+            }
+        }
+        return connection;
+    }
+
+    @Override
+    public void run() {
+        this.finished = false;
+        this.captured = false;
+        this.verifier = digestVerifier;
+        this.estimator.reset();
+        this.metrics = metricsListener == null ? null : new DownloadMetrics(url, segments, bufferSize);
+        int attempt = 0;
+        boolean delta = blockIndexUrl != null && consumer == null;
+        try {
+            if (cancel || pause) {
+                Log.i(TAG, "skip run, cancel: " + cancel + ", pause: " + pause);
+                return;
+            }
+            while (true) {
+                try {
+                    //每次连接重新合并进度，重新开始或从头重试时进度会变小
+                    messenger.reset();
+                    if (extractor != null) {
+                        extract();
+                        return;
+                    }
+                    if (!saveFile) {
+                        stream();
+                        return;
+                    }
+                    if (mediaTarget != null) {
+                        media(attempt > 0);
+                        return;
+                    }
+                    if (attempt == 0 && cache != null && revalidate()) {
+                        return;
+                    }
+                    if (delta) {
+                        //增量下载失败时重试仍走增量，旧文件不能作为续传前缀
+                        if (delta()) {
+                            return;
+                        }
+                        delta = false;
+                    }
+                    if (segments > 1 && consumer == null && runSegments(attempt > 0)) {
+                        return;
+                    }
+                    download(attempt > 0);
+                    return;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    if (!retry(++attempt, e)) {
+                        //暂停、取消或被调度器挂起时停止，不是失败
+                        if (isCancel() || isPause()) {
+                            Log.i(TAG, "stopped, cancel: " + isCancel() + ", pause: " + isPause());
+                        } else {
+                            failed(e);
+                        }
+                        return;
+                    }
+                } catch (RuntimeException e) {
+                    //消费者、解析、系统调用等非IO异常不重试
+                    e.printStackTrace();
+                    failed(e);
+                    return;
+                }
+            }
+        } finally {
+            if (cancel && !finished) {
+                discardMedia();
+            }
+            if (!isActive()) {
+                CommandPool.remove(this);
+            }
+            if (metrics != null) {
+                if (metrics.getStatus() == DownloadMetrics.STATUS_RUNNING) {
+                    metrics.onFinish(isCancel() ? DownloadMetrics.STATUS_CANCELLED : DownloadMetrics.STATUS_PAUSED, null);
+                }
+                metricsListener.onDownloadMetrics(metrics);
+            }
+        }
+    }
 
-    public Command(Context context, String url) {
-        this.context = context;
-        this.url = url;
-        headers = new HashMap<>();
-        messenger = new Messenger();
+    /**
+     * 单连接下载，从已下载的位置继续
+     *
+     * @param retrying 是否重试，重试时不覆盖已下载的部分
+     * @throws IOException
+     */
+    private void download(boolean retrying) throws IOException {
+        File file = createFile(url);
+        long downloadedLength = retrying ? file.length() : getDownloadedLength(url);
+        Log.i(TAG, "RANGE: " + downloadedLength);
+        if (metrics != null) {
+            metrics.onResume(downloadedLength);
+        }
+        HttpURLConnection connection;
+        int code;
+        if (mirrors != null && mirrors.size() > 0) {
+            List<String> urls = new ArrayList<>();
+            urls.add(url);
+            urls.addAll(mirrors);
+            connection = new HedgedRequest(this, urls, getHedgeDelay(), downloadedLength, -1).execute();
+            code = connection.getResponseCode();
+        } else {
+            connection = openConnection(downloadedLength, -1);
+            code = connect(connection);
+        }
+        Log.i(TAG, "code: " + code);
+        int contentLength = connection.getContentLength();
+        Log.i(TAG, "contentLength: " + contentLength);
+        if (code == 416 || downloadedLength == contentLength) {
+            connection.disconnect();
+            verify(file);
+            replay(file);
+            completed(file);
+            return;
+        }
+        if (code >= 400) {
+            connection.disconnect();
+            throw new HttpException(code, connection.getResponseMessage());
+        }
+        if (code == HttpURLConnection.HTTP_OK && downloadedLength > 0) {
+            Log.i(TAG, "range ignored, download from 0.");
+            file.delete();
+            downloadedLength = 0;
+        }
+        if (digestVerifier == null) {
+            verifier = DigestVerifier.fromHeaders(connection, code == HttpURLConnection.HTTP_OK);
+        }
+        capture(connection);
+        InputStream is = connection.getInputStream();
+        write(is, contentLength, downloadedLength, file);
     }
 
     /**
-     * 设置下载缓存路径的文件夹名
+     * 下载到媒体库文件描述符，从已写入的位置继续，完成后发布
      *
-     * @param dirName
+     * @param retrying 是否重试，重试时不覆盖已下载的部分
+     * @throws IOException
      */
-    public void setDirName(String dirName) {
-        this.dirName = dirName;
+    private void media(boolean retrying) throws IOException {
+        ParcelFileDescriptor descriptor = mediaTarget.open();
+        FileOutputStream fos = new FileOutputStream(descriptor.getFileDescriptor());
+        FileChannel fileChannel = fos.getChannel();
+        HttpURLConnection connection = null;
+        try {
+            long downloadedLength = fileChannel.size();
+            if ((isOverride() && !retrying) || consumer != null) {
+                downloadedLength = 0;
+            }
+            fileChannel.truncate(downloadedLength);
+            Log.i(TAG, "media RANGE: " + downloadedLength);
+            if (metrics != null) {
+                metrics.onResume(downloadedLength);
+            }
+            connection = openConnection(downloadedLength, -1);
+            int code = connect(connection);
+            Log.i(TAG, "media code: " + code);
+            if (code == 416) {
+                //已下载完整，发布前校验已写入的内容
+                if (verifier != null) {
+                    verifier.reset();
+                    verifier.update(fileChannel, downloadedLength);
+                    if (!verifier.verify()) {
+                        fileChannel.truncate(0);
+                        throw new IOException(verifier.getAlgorithm() + " digest mismatch");
+                    }
+                }
+                mediaTarget.publish();
+                completed(mediaTarget.getUri());
+                return;
+            }
+            if (code >= 400) {
+                throw new HttpException(code, connection.getResponseMessage());
+            }
+            if (code == HttpURLConnection.HTTP_OK && downloadedLength > 0) {
+                Log.i(TAG, "range ignored, download from 0.");
+                fileChannel.truncate(0);
+                downloadedLength = 0;
+            }
+            if (digestVerifier == null) {
+                verifier = DigestVerifier.fromHeaders(connection, code == HttpURLConnection.HTTP_OK);
+            }
+            int contentLength = connection.getContentLength();
+            totalSize = contentLength < 0 ? -1 : downloadedLength + contentLength;
+            if (verifier != null) {
+                verifier.reset();
+                verifier.update(fileChannel, downloadedLength);
+            }
+            if (consumer != null) {
+                consumer.onStart(totalSize);
+            }
+            long position = transfer(Channels.newChannel(connection.getInputStream()), fileChannel, downloadedLength);
+            if (isCancel() || isPause()) {
+                Log.i(TAG, "media paused.");
+                return;
+            }
+            if (totalSize > 0 && position < totalSize) {
+                throw new EOFException("Unexpected end of stream at " + position + "/" + totalSize);
+            }
+            if (verifier != null && !verifier.verify()) {
+                fileChannel.truncate(0);
+                throw new IOException(verifier.getAlgorithm() + " digest mismatch");
+            }
+            if (consumer != null) {
+                consumer.onEnd();
+            }
+            fos.getFD().sync();
+            mediaTarget.publish();
+            completed(mediaTarget.getUri());
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            try {
+                fos.close();
+                descriptor.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     /**
-     * 获取文件夹
+     * 校验完整文件摘要，用于没有经过流式计算的文件
      *
-     * @return
+     * @param file 文件
+     * @throws IOException 摘要不一致时删除文件
      */
-    public File getDir() {
-        return new File(context.getExternalCacheDir(), dirName);
+    private void verify(File file) throws IOException {
+        if (verifier != null && !verifier.verify(file)) {
+            file.delete();
+            throw new IOException(verifier.getAlgorithm() + " digest mismatch");
+        }
     }
 
     /**
-     * 获取下载的文件
+     * 只推送数据不写文件，每次从头下载
      *
-     * @param url 资源链接
-     * @return
+     * @throws IOException
      */
-    public File getFile(String url) {
-        return new File(getDir(), createFileName(url));
+    private void stream() throws IOException {
+        HttpURLConnection connection = openConnection(-1, -1);
+        int code = connect(connection);
+        Log.i(TAG, "stream code: " + code);
+        if (code >= 400) {
+            connection.disconnect();
+            throw new HttpException(code, connection.getResponseMessage());
+        }
+        if (digestVerifier == null) {
+            verifier = DigestVerifier.fromHeaders(connection, true);
+        }
+        int contentLength = connection.getContentLength();
+        totalSize = contentLength;
+        consumer.onStart(contentLength);
+        if (verifier != null) {
+            verifier.reset();
+        }
+        InputStream is = connection.getInputStream();
+        ReadableByteChannel channel = Channels.newChannel(is);
+        ByteBuffer buffer = BufferPool.acquire(bufferSize);
+        long position = 0;
+        try {
+            while (!isCancel() && !isPause()) {
+                buffer.clear();
+                if (fill(channel, buffer) == -1) {
+                    break;
+                }
+                throttle(buffer.position());
+                buffer.flip();
+                if (verifier != null) {
+                    verifier.update(buffer);
+                }
+                consumer.onData(buffer.asReadOnlyBuffer());
+                position += buffer.limit();
+                if (metrics != null) {
+                    metrics.onBytes(buffer.limit());
+                }
+                messenger.send(totalSize, position);
+            }
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            BufferPool.release(buffer);
+            connection.disconnect();
+        }
+        if (isCancel() || isPause()) {
+            return;
+        }
+        if (contentLength > 0 && position < contentLength) {
+            throw new EOFException("Unexpected end of stream at " + position + "/" + contentLength);
+        }
+        if (verifier != null && !verifier.verify()) {
+            throw new IOException(verifier.getAlgorithm() + " digest mismatch");
+        }
+        consumer.onEnd();
+        completed((File) null);
     }
 
     /**
-     * 是否覆盖下载
+     * 边下载边解压，每次从头下载
      *
-     * @return
+     * @throws IOException
      */
-    public boolean isOverride() {
-        return override;
+    private void extract() throws IOException {
+        HttpURLConnection connection = openConnection(-1, -1);
+        int code = connect(connection);
+        Log.i(TAG, "extract code: " + code);
+        if (code >= 400) {
+            connection.disconnect();
+            throw new HttpException(code, connection.getResponseMessage());
+        }
+        if (digestVerifier == null) {
+            verifier = DigestVerifier.fromHeaders(connection, true);
+        }
+        if (verifier != null) {
+            verifier.reset();
+        }
+        int contentLength = connection.getContentLength();
+        totalSize = contentLength;
+        DownloadInputStream is = new DownloadInputStream(connection.getInputStream(), this, verifier, contentLength);
+        try {
+            extractor.extract(is, bufferSize);
+            if (isCancel() || isPause()) {
+                return;
+            }
+            if (contentLength > 0 && is.getPosition() < contentLength) {
+                throw new EOFException("Unexpected end of stream at " + is.getPosition() + "/" + contentLength);
+            }
+            if (verifier != null && !verifier.verify()) {
+                throw new IOException(verifier.getAlgorithm() + " digest mismatch");
+            }
+        } catch (IOException e) {
+            extractor.clear();
+            if (isCancel() || isPause()) {
+                return;
+            }
+            throw e;
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            connection.disconnect();
+        }
+        completed(extractor.getDir());
     }
 
     /**
-     * 设置是否覆盖下载
+     * 把已下载的文件推送给消费者
      *
-     * @param override
+     * @param file 文件
+     * @throws IOException
      */
-    public void setOverride(boolean override) {
-        this.override = override;
+    private void replay(File file) throws IOException {
+        if (consumer == null) {
+            return;
+        }
+        consumer.onStart(file.length());
+        replay(file, file.length());
+        consumer.onEnd();
     }
 
     /**
-     * 取消下载
+     * 把文件前面已下载的部分推送给消费者，用于续传
+     *
+     * @param file   文件
+     * @param length 长度
+     * @throws IOException
      */
-    public void cancel() {
-        this.cancel = true;
+    private void replay(File file, long length) throws IOException {
+        RandomAccessFile access = new RandomAccessFile(file, "r");
+        ByteBuffer buffer = BufferPool.acquire(bufferSize);
+        try {
+            FileChannel channel = access.getChannel();
+            long position = 0;
+            while (position < length) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), length - position));
+                int read = channel.read(buffer, position);
+                if (read == -1) {
+                    break;
+                }
+                position += read;
+                buffer.flip();
+                consumer.onData(buffer.asReadOnlyBuffer());
+            }
+        } finally {
+            BufferPool.release(buffer);
+            access.close();
+        }
     }
 
     /**
-     * 是否取消
+     * 按重试策略等待后重试
      *
-     * @return
+     * @param attempt 第几次重试
+     * @param e       异常
+     * @return 是否重试，等待前或等待中暂停、取消时也返回false，由调用方区分
      */
-    public boolean isCancel() {
-        return cancel;
+    private boolean retry(int attempt, IOException e) {
+        if (retryPolicy == null || isCancel() || isPause() || !retryPolicy.isRetryable(attempt, e)) {
+            return false;
+        }
+        long delay = retryPolicy.getDelay(attempt);
+        Log.i(TAG, "retry " + attempt + " after " + delay + "ms");
+        if (metrics != null) {
+            metrics.onRetry();
+        }
+        long end = SystemClock.uptimeMillis() + delay;
+        long remaining = delay;
+        while (remaining > 0 && !isCancel() && !isPause()) {
+            try {
+                Thread.sleep(Math.min(remaining, 100));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            remaining = end - SystemClock.uptimeMillis();
+        }
+        return !isCancel() && !isPause();
     }
 
     /**
-     * 暂停
+     * 使用缓存，缓存有效时直接完成，过期时向服务器确认
+     *
+     * @return 是否使用了缓存
+     * @throws IOException
      */
-    public void pause() {
-        this.pause = true;
+    private boolean revalidate() throws IOException {
+        String key = getKey();
+        HttpCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            return false;
+        }
+        File file = new File(entry.getPath());
+        if (entry.isFresh()) {
+            Log.i(TAG, "cache fresh: " + file.getAbsolutePath());
+            replay(file);
+            completed(file);
+            return true;
+        }
+        if (entry.isValidatable()) {
+            HttpURLConnection connection = openConnection(0, 0);
+            if (entry.getETag() != null) {
+                connection.setRequestProperty("If-None-Match", entry.getETag());
+            }
+            if (entry.getLastModified() != null) {
+                connection.setRequestProperty("If-Modified-Since", entry.getLastModified());
+            }
+            int code = connect(connection);
+            Log.i(TAG, "revalidate code: " + code);
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                cache.update(key, HttpCache.parseExpires(connection));
+                connection.disconnect();
+                replay(file);
+                completed(file);
+                return true;
+            }
+            connection.disconnect();
+        }
+        file.delete();
+        cache.remove(key);
+        return false;
     }
 
     /**
-     * 是否暂停
+     * 分块增量下载，本地没有旧文件时返回false
      *
-     * @return
+     * @return 是否已增量下载
+     * @throws IOException
      */
-    public boolean isPause() {
-        return pause;
+    private boolean delta() throws IOException {
+        File file = createFile(url);
+        if (!file.exists() || file.length() == 0) {
+            return false;
+        }
+        HttpURLConnection connection = openConnection(blockIndexUrl, -1, -1);
+        int code = connect(connection);
+        Log.i(TAG, "block index code: " + code);
+        if (code != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            file.delete();
+            return false;
+        }
+        BlockIndex index;
+        InputStream is = connection.getInputStream();
+        try {
+            index = BlockIndex.read(is);
+        } finally {
+            is.close();
+            connection.disconnect();
+        }
+        totalSize = index.getLength();
+        if (!new BlockDelta(this, index).apply(file)) {
+            return true;
+        }
+        verify(file);
+        completed(file);
+        return true;
     }
 
     /**
-     * 添加Header
+     * 获取If-Range校验值，资源已修改时服务器返回完整内容而不是续传
      *
-     * @param key   键
-     * @param value 值
+     * @return 强ETag或Last-Modified，未知返回null
      */
-    public void addHeader(String key, String value) {
-        headers.put(key, value);
+    private String getIfRange() {
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return lastModified;
     }
 
     /**
-     * 设置下载监听
+     * 记录缓存校验信息
      *
-     * @param listener
+     * @param connection 连接
      */
-    public void setOnDownloadListener(OnDownloadListener listener) {
-        messenger.setOnDownloadListener(listener);
+    private void capture(HttpURLConnection connection) {
+        captured = true;
+        etag = connection.getHeaderField("ETag");
+        lastModified = connection.getHeaderField("Last-Modified");
+        expires = HttpCache.parseExpires(connection);
     }
 
-    @Override
-    public void run() {
-        this.cancel = false;
-        this.pause = false;
-        try {
-            URL httpUrl = new URL(url);
-            URLConnection urlConnection = httpUrl.openConnection();
-            HttpURLConnection connection = (HttpURLConnection) httpUrl.openConnection();
-            if (url.toUpperCase().startsWith("HTTPS")) {
-                connection = (HttpURLConnection) urlConnection;
-                HttpsURLConnection httpsURLConnection = (HttpsURLConnection) connection;
-                httpsURLConnection.setHostnameVerifier(new HttpsHostnameVerifier());
-                httpsURLConnection.setSSLSocketFactory(HttpsSSLSocketFactory.factory());
-                connection = httpsURLConnection;
-            }
-            connection.setDoInput(true);
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("Charset", "UTF-8");
-            long downloadedLength = getDownloadedLength(url);
-            Log.i(TAG, "RANGE: " + downloadedLength);
-            connection.setRequestProperty("RANGE", "bytes=" + downloadedLength + "-");
-            if (headers != null) {
-                for (String key : headers.keySet()) {
-                    connection.setRequestProperty(key, headers.get(key));
-                }
-            }
-            connection.connect();
-            int code = connection.getResponseCode();
-            Log.i(TAG, "code: " + code);
-            int contentLength = connection.getContentLength();
-            Log.i(TAG, "contentLength: " + contentLength);
-            if (code == 416 || downloadedLength == contentLength) {
-                messenger.send(createFile(url));
-                return;
+    /**
+     * 分段下载
+     *
+     * @param retrying 是否重试，重试时继续已保存的分段
+     * @return 是否已分段下载，服务器不支持范围请求时返回false，使用单连接下载
+     * @throws IOException
+     */
+    private boolean runSegments(boolean retrying) throws IOException {
+        File file = createFile(url);
+        if (file.exists() && !isOverride()) {
+            return false;
+        }
+        HttpURLConnection probe = openConnection(0, 0);
+        int code = connect(probe);
+        long total = parseContentRangeTotal(probe.getHeaderField("Content-Range"));
+        probe.disconnect();
+        Log.i(TAG, "probe code: " + code + ", total: " + total);
+        if (code != HttpURLConnection.HTTP_PARTIAL || total <= 0) {
+            return false;
+        }
+        capture(probe);
+        if (digestVerifier == null) {
+            verifier = DigestVerifier.fromHeaders(probe, false);
+        }
+        if (file.exists()) {
+            file.delete();
+        }
+        totalSize = total;
+        SegmentGroup group = new SegmentGroup(this, new File(file.getParentFile(), file.getName() + ".part"), total);
+        group.prepare(segments, isOverride() && !retrying);
+        group.execute(service, segments);
+        if (group.getError() != null) {
+            throw group.getError();
+        } else if (group.isCompleted()) {
+            verify(group.getFile());
+            if (!group.getFile().renameTo(file)) {
+                failed(new IOException("Rename " + group.getFile().getName() + " failed"));
+                return true;
             }
-            InputStream is = connection.getInputStream();
-            write(is, contentLength, downloadedLength, createFile(url));
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-            messenger.send(e);
-        } catch (ProtocolException e) {
-            e.printStackTrace();
-            messenger.send(e);
-        } catch (IOException e) {
-            e.printStackTrace();
-            messenger.send(e);
+            completed(file);
+        }
+        return true;
+    }
+
+    /**
+     * 解析Content-Range中的文件大小
+     *
+     * @param contentRange 例如：bytes 0-0/1024
+     * @return 文件大小，未知返回-1
+     */
+    public static long parseContentRangeTotal(String contentRange) {
+        if (contentRange == null || !contentRange.contains("/")) {
+            return -1;
+        }
+        String total = contentRange.substring(contentRange.lastIndexOf("/") + 1).trim();
+        try {
+            return Long.parseLong(total);
+        } catch (NumberFormatException e) {
+            return -1;
         }
     }
 
@@ -196,6 +1302,13 @@ public class Command implements Runnable {
      * @return
      */
     public File createFile(String url) {
+        if (target != null) {
+            File parent = target.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            return target;
+        }
         File dir = new File(context.getExternalCacheDir(), dirName);
         if (!dir.exists()) {
             dir.mkdirs();
@@ -231,6 +1344,11 @@ public class Command implements Runnable {
      */
     public long getDownloadedLength(String url) {
         File file = createFile(url);
+        File allocation = getAllocationFile(file);
+        if (allocation.exists()) {
+            file.delete();
+            allocation.delete();
+        }
         if (file.exists()) {
             if (isOverride()) {
                 file.delete();
@@ -247,9 +1365,13 @@ public class Command implements Runnable {
      * @param contentLength     文件大小
      * @param downloadedLength  下载大小
      * @param file              文件
+     * @throws IOException       读写失败
      */
-    public void write(InputStream is, long contentLength, long downloadedLength, File file) {
+    public void write(InputStream is, long contentLength, long downloadedLength, File file) throws IOException {
         RandomAccessFile access = null;
+        File allocation = getAllocationFile(file);
+        boolean allocated = false;
+        written = downloadedLength;
         try {
             if (downloadedLength == 0) {
                 totalSize = contentLength;
@@ -257,52 +1379,204 @@ public class Command implements Runnable {
                 totalSize = downloadedLength + contentLength;
             }
             if (totalSize == downloadedLength && downloadedLength != 0) {
-                messenger.send(file);
+                replay(file);
+                completed(file);
                 return;
             }
             if (totalSize == 0) {
                 if (downloadedLength == 0) {
-                    messenger.send(new IOException("The file length value is 0 and cannot be downloaded properly"));
+                    failed(new IOException("The file length value is 0 and cannot be downloaded properly"));
                 } else {
                     if (isOverride()) {
                         file.delete();
                     } else {
-                        messenger.send(file);
+                        replay(file);
+                        completed(file);
                     }
                 }
                 return;
             }
             Log.i(TAG, "file: " + file.getAbsolutePath());
             access = new RandomAccessFile(file, "rw");
-            access.seek(downloadedLength);
-            int length;
-            long progress = 0;
-            byte[] buffer = new byte[2048];
-            while ((length = is.read(buffer)) != -1) {
-                if (isCancel() || isPause()) {
-                    break;
+            if (contentLength > 0) {
+                allocation.createNewFile();
+                allocated = true;
+                preallocate(access, file, totalSize);
+            }
+            ReadableByteChannel channel = Channels.newChannel(is);
+            FileChannel fileChannel = access.getChannel();
+            if (verifier != null) {
+                verifier.reset();
+                if (downloadedLength > 0) {
+                    verifier.update(file, downloadedLength);
+                }
+            }
+            if (consumer != null) {
+                consumer.onStart(totalSize);
+                if (downloadedLength > 0) {
+                    replay(file, downloadedLength);
                 }
-                access.write(buffer, 0, length);
-                progress += length;
-                messenger.send(totalSize, progress + downloadedLength);
             }
-            messenger.send(file);
+            long position = transfer(channel, fileChannel, downloadedLength);
+            if (isCancel() || isPause()) {
+                Log.i(TAG, "write paused.");
+                return;
+            }
+            if (contentLength > 0 && position < totalSize) {
+                throw new EOFException("Unexpected end of stream at " + position + "/" + totalSize);
+            }
+            if (verifier != null && !verifier.verify()) {
+                file.delete();
+                throw new IOException(verifier.getAlgorithm() + " digest mismatch");
+            }
+            if (consumer != null) {
+                consumer.onEnd();
+            }
+            completed(file);
             Log.i(TAG, "write end file.");
-        } catch (Exception e) {
-            e.printStackTrace();
-            messenger.send(e);
         } finally {
             try {
                 if (is != null) {
                     is.close();
                 }
                 if (access != null) {
+                    if (allocated && !isFinished() && file.exists()) {
+                        access.setLength(written);
+                    }
                     access.close();
                 }
             } catch (IOException e) {
                 e.printStackTrace();
             }
+            if (allocated) {
+                allocation.delete();
+            }
+        }
+    }
+
+    /**
+     * 从输入通道读取数据，摘要、推送消费者后按位置写入文件，吞吐量高时增大缓冲
+     *
+     * @param channel     输入通道
+     * @param fileChannel 文件通道
+     * @param position    开始位置
+     * @return 结束位置
+     * @throws IOException
+     */
+    private long transfer(ReadableByteChannel channel, FileChannel fileChannel, long position) throws IOException {
+        written = position;
+        ByteBuffer buffer = BufferPool.acquire(bufferSize);
+        try {
+            while (!isCancel() && !isPause()) {
+                buffer.clear();
+                if (fill(channel, buffer) == -1) {
+                    break;
+                }
+                throttle(buffer.position());
+                buffer.flip();
+                if (verifier != null) {
+                    verifier.update(buffer);
+                }
+                if (consumer != null) {
+                    consumer.onData(buffer.asReadOnlyBuffer());
+                }
+                while (buffer.hasRemaining()) {
+                    position += fileChannel.write(buffer, position);
+                }
+                written = position;
+                if (metrics != null) {
+                    metrics.onBytes(buffer.limit());
+                }
+                messenger.send(totalSize, position);
+                buffer = adapt(buffer);
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+        return position;
+    }
+
+    /**
+     * 按吞吐量调整缓冲，缓冲小于约100毫秒数据量的一半时加倍，不超过{@link #MAX_BUFFER_SIZE}
+     *
+     * @param buffer 当前缓冲
+     * @return 调整后的缓冲
+     */
+    public ByteBuffer adapt(ByteBuffer buffer) {
+        if (!adaptive || buffer.capacity() >= MAX_BUFFER_SIZE) {
+            return buffer;
+        }
+        if (estimator.getSpeed() / 10 < buffer.capacity() * 2L) {
+            return buffer;
+        }
+        int capacity = Math.min(MAX_BUFFER_SIZE, buffer.capacity() * 2);
+        Log.i(TAG, "buffer " + buffer.capacity() + " -> " + capacity + ", speed: " + estimator.getSpeed());
+        BufferPool.release(buffer);
+        return BufferPool.acquire(capacity);
+    }
+
+    /**
+     * 获取预分配标记文件，标记存在时文件大小不代表已下载大小
+     *
+     * @param file 文件
+     * @return
+     */
+    private File getAllocationFile(File file) {
+        return new File(file.getParentFile(), file.getName() + ".alloc");
+    }
+
+    /**
+     * 预分配文件空间，先检查可用空间，空间不足时在传输前失败，
+     * 之后按位置写入不再增长文件
+     *
+     * @param access 文件
+     * @param file   文件路径
+     * @param total  文件大小
+     * @throws StorageException 空间不足
+     * @throws IOException
+     */
+    public static void preallocate(RandomAccessFile access, File file, long total) throws IOException {
+        long current = access.length();
+        if (total <= current) {
+            return;
+        }
+        long required = total - current;
+        File dir = file.getAbsoluteFile().getParentFile();
+        long available = new StatFs(dir.getAbsolutePath()).getAvailableBytes();
+        if (available < required) {
+            throw new StorageException(required, available);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            try {
+                Os.posix_fallocate(access.getFD(), current, required);
+                return;
+            } catch (ErrnoException e) {
+                if (e.errno == OsConstants.ENOSPC) {
+                    throw new StorageException(required, available);
+                }
+                e.printStackTrace();
+            }
+        }
+        access.setLength(total);
+    }
+
+    /**
+     * 从通道读取一次数据，读到数据即返回，不等待缓冲区填满，
+     * 慢速连接下进度、限速和暂停不会被阻塞
+     *
+     * @param channel 输入通道
+     * @param buffer  缓冲区
+     * @return 读取长度，流结束返回-1
+     * @throws IOException
+     */
+    public static int fill(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining() && buffer.position() == start) {
+            if (channel.read(buffer) == -1) {
+                return -1;
+            }
         }
+        return buffer.position() - start;
     }
 
 }
@@ -0,0 +1,66 @@
+package androidx.io.core.net;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 下载中的命令池，合并相同标识的下载请求
+ */
+public class CommandPool {
+
+    private static final Map<String, Command> commands = new HashMap<>();
+
+    private CommandPool() {
+
+    }
+
+    /**
+     * 登记下载命令，相同标识的命令正在下载且设置一致时把监听加入该命令
+     *
+     * @param command 下载命令
+     * @return 实际执行的下载命令，与参数不同时表示已合并
+     */
+    public static Command attach(Command command) {
+        String key = command.getKey();
+        synchronized (commands) {
+            Command active = commands.get(key);
+            if (active != null && active != command && active.isActive() && active.isMergeable(command)) {
+                Messenger messenger = active.getMessenger();
+                for (OnDownloadListener listener : command.getMessenger().getOnDownloadListeners()) {
+                    messenger.addOnDownloadListener(listener);
+                }
+                return active;
+            }
+            commands.put(key, command);
+            return command;
+        }
+    }
+
+    /**
+     * 移除下载命令
+     *
+     * @param command 下载命令
+     */
+    public static void remove(Command command) {
+        String key = command.getKey();
+        synchronized (commands) {
+            if (commands.get(key) == command) {
+                commands.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 获取正在下载的命令
+     *
+     * @param key 下载标识
+     * @return
+     */
+    public static Command get(String key) {
+        synchronized (commands) {
+            Command command = commands.get(key);
+            return command != null && command.isActive() ? command : null;
+        }
+    }
+
+}
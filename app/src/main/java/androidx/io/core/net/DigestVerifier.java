@@ -0,0 +1,240 @@
+package androidx.io.core.net;
+
+import android.util.Base64;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * 下载文件摘要校验，边下载边计算，下载完成后不再重新读取文件
+ */
+public class DigestVerifier {
+
+    public static String TAG = DigestVerifier.class.getSimpleName();
+
+    public static final String MD5 = "MD5";
+    public static final String SHA_1 = "SHA-1";
+    public static final String SHA_256 = "SHA-256";
+
+    private String algorithm;
+    private byte[] expected;
+    private MessageDigest digest;
+
+    /**
+     * 构建摘要校验
+     *
+     * @param algorithm 算法：{@link #MD5}、{@link #SHA_1}、{@link #SHA_256}
+     * @param expected  期望摘要，十六进制或Base64，无法解码时校验不通过
+     */
+    public DigestVerifier(String algorithm, String expected) {
+        this.algorithm = algorithm;
+        this.expected = decode(expected);
+    }
+
+    /**
+     * 获取算法
+     *
+     * @return
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * 是否与另一个校验的算法和期望摘要相同
+     *
+     * @param other 摘要校验
+     * @return
+     */
+    public boolean isSame(DigestVerifier other) {
+        return other != null && algorithm.equalsIgnoreCase(other.algorithm) && Arrays.equals(expected, other.expected);
+    }
+
+    /**
+     * 重置摘要
+     *
+     * @throws IOException 不支持的算法
+     */
+    public void reset() throws IOException {
+        try {
+            if (digest == null) {
+                digest = MessageDigest.getInstance(algorithm);
+            }
+            digest.reset();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Unsupported digest algorithm " + algorithm);
+        }
+    }
+
+    /**
+     * 更新摘要，不改变缓冲区位置
+     *
+     * @param buffer 已写入的数据
+     */
+    public void update(ByteBuffer buffer) {
+        digest.update(buffer.duplicate());
+    }
+
+    /**
+     * 读取已下载的部分恢复摘要状态，用于断点续传
+     *
+     * @param file   文件
+     * @param length 已下载长度
+     * @throws IOException
+     */
+    public void update(File file, long length) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            update(fis.getChannel(), length);
+        } finally {
+            fis.close();
+        }
+    }
+
+    /**
+     * 读取通道开头已下载的部分恢复摘要状态，不改变通道位置
+     *
+     * @param channel 文件通道
+     * @param length  已下载长度
+     * @throws IOException
+     */
+    public void update(FileChannel channel, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Command.DEFAULT_BUFFER_SIZE);
+        long position = 0;
+        while (position < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - position));
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                break;
+            }
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
+        }
+    }
+
+    /**
+     * 校验摘要
+     *
+     * @return 是否一致
+     */
+    public boolean verify() {
+        return expected != null && MessageDigest.isEqual(expected, digest.digest());
+    }
+
+    /**
+     * 校验完整文件
+     *
+     * @param file 文件
+     * @return 是否一致
+     * @throws IOException
+     */
+    public boolean verify(File file) throws IOException {
+        reset();
+        update(file, file.length());
+        return verify();
+    }
+
+    /**
+     * 从响应头创建摘要校验，支持Digest（如SHA-256=Base64）和Content-MD5，
+     * 无法解码的摘要头忽略，不因可选的响应头使下载失败
+     *
+     * @param connection 连接
+     * @param full       是否完整内容，Content-MD5只对完整内容有效
+     * @return 没有可用的摘要头时返回null
+     */
+    public static DigestVerifier fromHeaders(HttpURLConnection connection, boolean full) {
+        String digest = connection.getHeaderField("Digest");
+        if (digest != null) {
+            DigestVerifier verifier = null;
+            for (String item : digest.split(",")) {
+                int index = item.indexOf("=");
+                if (index <= 0) {
+                    continue;
+                }
+                String name = item.substring(0, index).trim().toUpperCase();
+                String value = item.substring(index + 1).trim();
+                if (name.equals("SHA-256")) {
+                    DigestVerifier sha256 = fromHeader(SHA_256, value);
+                    if (sha256 != null) {
+                        return sha256;
+                    }
+                }
+                if (name.equals("SHA") || name.equals("SHA-1")) {
+                    DigestVerifier sha1 = fromHeader(SHA_1, value);
+                    verifier = sha1 != null ? sha1 : verifier;
+                }
+                if (name.equals("MD5") && verifier == null) {
+                    verifier = fromHeader(MD5, value);
+                }
+            }
+            if (verifier != null) {
+                return verifier;
+            }
+        }
+        String contentMD5 = connection.getHeaderField("Content-MD5");
+        if (full && contentMD5 != null) {
+            return fromHeader(MD5, contentMD5);
+        }
+        return null;
+    }
+
+    /**
+     * 从响应头的摘要创建校验
+     *
+     * @param algorithm 算法
+     * @param value     摘要
+     * @return 无法解码或长度不符时返回null，不校验
+     */
+    private static DigestVerifier fromHeader(String algorithm, String value) {
+        DigestVerifier verifier = new DigestVerifier(algorithm, value);
+        int length;
+        try {
+            length = MessageDigest.getInstance(algorithm).getDigestLength();
+        } catch (NoSuchAlgorithmException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (verifier.expected == null || verifier.expected.length != length) {
+            Log.i(TAG, "ignore undecodable " + algorithm + " header: " + value);
+            return null;
+        }
+        return verifier;
+    }
+
+    /**
+     * 解码摘要，支持十六进制和Base64
+     *
+     * @param value 摘要
+     * @return
+     */
+    private static byte[] decode(String value) {
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        if (value.length() % 2 == 0 && value.matches("[0-9a-fA-F]+")) {
+            byte[] bytes = new byte[value.length() / 2];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) Integer.parseInt(value.substring(i * 2, i * 2 + 2), 16);
+            }
+            return bytes;
+        }
+        try {
+            return Base64.decode(value, Base64.DEFAULT);
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package androidx.io.core.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 下载数据消费者，在下载线程按顺序接收数据，
+ * 方法返回后才读取下一段数据，消费者处理慢时下载随之变慢。
+ */
+public interface DownloadConsumer {
+
+    /**
+     * 开始接收，重试时会再次调用，需重置已接收的状态
+     *
+     * @param total 文件大小，未知为-1
+     * @throws IOException 抛出异常时下载失败
+     */
+    void onStart(long total) throws IOException;
+
+    /**
+     * 接收数据，缓冲区只读且只在本次调用内有效
+     *
+     * @param buffer 数据
+     * @throws IOException 抛出异常时下载失败
+     */
+    void onData(ByteBuffer buffer) throws IOException;
+
+    /**
+     * 接收完成，摘要校验通过后调用
+     *
+     * @throws IOException 抛出异常时下载失败
+     */
+    void onEnd() throws IOException;
+
+}
@@ -0,0 +1,103 @@
+package androidx.io.core.net;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 下载输入流，读取时按限速等待，同步计算摘要、记录指标和发送进度
+ */
+public class DownloadInputStream extends FilterInputStream {
+
+    private Command command;
+    private DigestVerifier verifier;
+    private long total;
+    private long position;
+
+    /**
+     * 构建下载输入流
+     *
+     * @param in       响应流
+     * @param command  下载命令
+     * @param verifier 摘要校验，可为null
+     * @param total    文件大小
+     */
+    public DownloadInputStream(InputStream in, Command command, DigestVerifier verifier, long total) {
+        super(in);
+        this.command = command;
+        this.verifier = verifier;
+        this.total = total;
+    }
+
+    /**
+     * 获取已读取的字节数
+     *
+     * @return
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value != -1) {
+            byte[] bytes = {(byte) value};
+            onRead(bytes, 0, 1);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (command.isCancel() || command.isPause()) {
+            return -1;
+        }
+        int length = super.read(b, off, len);
+        if (length > 0) {
+            onRead(b, off, length);
+        }
+        return length;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int length = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (length == -1) {
+                break;
+            }
+            skipped += length;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * 读取数据后处理
+     *
+     * @param b      数据
+     * @param off    开始位置
+     * @param length 长度
+     * @throws IOException
+     */
+    private void onRead(byte[] b, int off, int length) throws IOException {
+        command.throttle(length);
+        if (verifier != null) {
+            verifier.update(ByteBuffer.wrap(b, off, length));
+        }
+        position += length;
+        if (command.getMetrics() != null) {
+            command.getMetrics().onBytes(length);
+        }
+        command.getMessenger().send(total, position);
+    }
+
+}
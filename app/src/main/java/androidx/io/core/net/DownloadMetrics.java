@@ -0,0 +1,211 @@
+package androidx.io.core.net;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单次下载指标，记录连接、TLS握手、首字节耗时，吞吐量变化，重试次数、续传位置和结果
+ */
+public class DownloadMetrics {
+
+    public static final int STATUS_RUNNING = 0;
+    public static final int STATUS_COMPLETED = 1;
+    public static final int STATUS_FAILED = 2;
+    public static final int STATUS_PAUSED = 3;
+    public static final int STATUS_CANCELLED = 4;
+
+    /**
+     * 吞吐量采样间隔（毫秒）
+     */
+    public static final long SAMPLE_INTERVAL = 500;
+
+    private String url;
+    private int segments;
+    private int bufferSize;
+    private long startTime;
+    private long startNanos;
+    private long tlsTime = -1;
+    private long connectTime = -1;
+    private long firstByteTime = -1;
+    private long resumeOffset;
+    private long bytes;
+    private int retries;
+    private long duration = -1;
+    private int status = STATUS_RUNNING;
+    private Exception error;
+    private long sampleTime;
+    private List<long[]> samples;
+
+    /**
+     * 构建下载指标
+     *
+     * @param url        资源链接
+     * @param segments   分段数量
+     * @param bufferSize 读取缓冲大小
+     */
+    public DownloadMetrics(String url, int segments, int bufferSize) {
+        this.url = url;
+        this.segments = segments;
+        this.bufferSize = bufferSize;
+        this.startTime = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.samples = new ArrayList<>();
+    }
+
+    /**
+     * 获取开始后经过的毫秒数
+     *
+     * @return
+     */
+    public long elapsed() {
+        return (System.nanoTime() - startNanos) / 1000000;
+    }
+
+    /**
+     * 记录TLS握手耗时，包含在连接耗时内，只记录第一次，复用连接时没有握手
+     *
+     * @param millis 毫秒
+     */
+    public synchronized void onTls(long millis) {
+        if (tlsTime < 0) {
+            tlsTime = millis;
+        }
+    }
+
+    /**
+     * 记录连接耗时（TCP及TLS握手）和首字节耗时，只记录第一次
+     *
+     * @param connectMillis   连接毫秒
+     * @param firstByteMillis 首字节毫秒
+     */
+    public synchronized void onConnected(long connectMillis, long firstByteMillis) {
+        if (connectTime < 0) {
+            connectTime = connectMillis;
+            firstByteTime = firstByteMillis;
+        }
+    }
+
+    /**
+     * 记录续传位置
+     *
+     * @param offset 已下载字节数
+     */
+    public synchronized void onResume(long offset) {
+        resumeOffset = offset;
+    }
+
+    /**
+     * 记录读取字节，按采样间隔记录累计字节数
+     *
+     * @param length 字节数
+     */
+    public synchronized void onBytes(long length) {
+        bytes += length;
+        long time = elapsed();
+        if (time - sampleTime >= SAMPLE_INTERVAL) {
+            sampleTime = time;
+            samples.add(new long[]{time, bytes});
+        }
+    }
+
+    /**
+     * 记录重试
+     */
+    public synchronized void onRetry() {
+        retries++;
+    }
+
+    /**
+     * 记录结束
+     *
+     * @param status 结果
+     * @param error  异常
+     */
+    public synchronized void onFinish(int status, Exception error) {
+        this.status = status;
+        this.error = error;
+        this.duration = elapsed();
+        samples.add(new long[]{duration, bytes});
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public synchronized long getTlsTime() {
+        return tlsTime;
+    }
+
+    public synchronized long getConnectTime() {
+        return connectTime;
+    }
+
+    public synchronized long getFirstByteTime() {
+        return firstByteTime;
+    }
+
+    public synchronized long getResumeOffset() {
+        return resumeOffset;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getRetries() {
+        return retries;
+    }
+
+    public synchronized long getDuration() {
+        return duration;
+    }
+
+    public synchronized int getStatus() {
+        return status;
+    }
+
+    public synchronized Exception getError() {
+        return error;
+    }
+
+    /**
+     * 获取吞吐量采样，每项为[毫秒, 累计字节数]
+     *
+     * @return
+     */
+    public synchronized List<long[]> getSamples() {
+        return new ArrayList<>(samples);
+    }
+
+    /**
+     * 获取平均速度
+     *
+     * @return 字节/秒，未结束返回-1
+     */
+    public synchronized long getBytesPerSecond() {
+        if (duration <= 0) {
+            return -1;
+        }
+        return bytes * 1000 / duration;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DownloadMetrics{url=" + url + ", status=" + status + ", connect=" + connectTime + ", tls=" + tlsTime
+                + ", ttfb=" + firstByteTime + ", resume=" + resumeOffset + ", bytes=" + bytes + ", retries=" + retries
+                + ", duration=" + duration + ", segments=" + segments + ", bufferSize=" + bufferSize + "}";
+    }
+
+}
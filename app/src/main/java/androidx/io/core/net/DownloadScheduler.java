@@ -0,0 +1,274 @@
+package androidx.io.core.net;
+
+import android.util.Log;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 下载调度器，按优先级排队，限制全局并发数和单个主机的下载数，
+ * 用户可见的下载到达时挂起低优先级下载，重新排队后按断点继续。
+ * 限制按下载任务计数，分段下载的多个连接只算一个任务。
+ */
+public class DownloadScheduler {
+
+    public String TAG = DownloadScheduler.class.getSimpleName();
+
+    /**
+     * 低优先级，例如预加载
+     */
+    public static final int PRIORITY_LOW = 0;
+    /**
+     * 普通优先级
+     */
+    public static final int PRIORITY_NORMAL = 1;
+    /**
+     * 高优先级，用户可见的下载，可抢占低优先级下载
+     */
+    public static final int PRIORITY_HIGH = 2;
+
+    private static volatile DownloadScheduler scheduler;
+
+    private ExecutorService service;
+    private int maxRunning = 3;
+    private int maxPerHost = 2;
+    private List<LinkedList<Task>> lanes;
+    private List<Task> running;
+    private Map<String, Integer> hosts;
+
+    public DownloadScheduler() {
+        service = Executors.newCachedThreadPool();
+        lanes = new ArrayList<>();
+        for (int i = PRIORITY_LOW; i <= PRIORITY_HIGH; i++) {
+            lanes.add(new LinkedList<Task>());
+        }
+        running = new ArrayList<>();
+        hosts = new HashMap<>();
+    }
+
+    /**
+     * 获取默认调度器
+     *
+     * @return
+     */
+    public static DownloadScheduler getDefault() {
+        if (scheduler == null) {
+            synchronized (DownloadScheduler.class) {
+                if (scheduler == null) {
+                    scheduler = new DownloadScheduler();
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * 设置全局最大并发下载数
+     *
+     * @param maxRunning 最大并发数
+     */
+    public synchronized void setMaxRunning(int maxRunning) {
+        this.maxRunning = Math.max(1, maxRunning);
+        schedule();
+    }
+
+    /**
+     * 设置单个主机最大下载数，按任务计数，分段下载的连接数由{@link Command#setSegments(int)}另行控制
+     *
+     * @param maxPerHost 最大下载数
+     */
+    public synchronized void setMaxPerHost(int maxPerHost) {
+        this.maxPerHost = Math.max(1, maxPerHost);
+        schedule();
+    }
+
+    /**
+     * 加入下载队列
+     *
+     * @param command  下载命令
+     * @param priority 优先级
+     */
+    public synchronized void enqueue(Command command, int priority) {
+        priority = Math.max(PRIORITY_LOW, Math.min(PRIORITY_HIGH, priority));
+        Task task = new Task(command, priority, host(command.getUrl()));
+        lanes.get(priority).addLast(task);
+        schedule();
+        if (priority == PRIORITY_HIGH && lanes.get(priority).contains(task)) {
+            preempt(task);
+        }
+    }
+
+    /**
+     * 移除排队中的下载
+     *
+     * @param command 下载命令
+     * @return 是否移除
+     */
+    public synchronized boolean remove(Command command) {
+        for (LinkedList<Task> lane : lanes) {
+            Iterator<Task> iterator = lane.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().command == command) {
+                    iterator.remove();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取排队数量
+     *
+     * @return
+     */
+    public synchronized int getQueuedCount() {
+        int count = 0;
+        for (LinkedList<Task> lane : lanes) {
+            count += lane.size();
+        }
+        return count;
+    }
+
+    /**
+     * 获取运行数量
+     *
+     * @return
+     */
+    public synchronized int getRunningCount() {
+        return running.size();
+    }
+
+    /**
+     * 按优先级从高到低启动可运行的下载
+     */
+    private void schedule() {
+        for (int priority = PRIORITY_HIGH; priority >= PRIORITY_LOW; priority--) {
+            Iterator<Task> iterator = lanes.get(priority).iterator();
+            while (iterator.hasNext()) {
+                if (running.size() >= maxRunning) {
+                    return;
+                }
+                Task task = iterator.next();
+                if (getHostCount(task.host) >= maxPerHost) {
+                    continue;
+                }
+                iterator.remove();
+                running.add(task);
+                hosts.put(task.host, getHostCount(task.host) + 1);
+                service.execute(task);
+            }
+        }
+    }
+
+    /**
+     * 暂停一个低优先级下载，为高优先级下载让出连接
+     *
+     * @param task 高优先级下载
+     */
+    private void preempt(Task task) {
+        boolean hostLimited = getHostCount(task.host) >= maxPerHost;
+        Task victim = null;
+        for (Task item : running) {
+            if (item.preempted || item.priority >= task.priority) {
+                continue;
+            }
+            if (hostLimited && !item.host.equals(task.host)) {
+                continue;
+            }
+            if (victim == null || item.priority <= victim.priority) {
+                victim = item;
+            }
+        }
+        if (victim != null) {
+            Log.i(TAG, "preempt: " + victim.command.getUrl());
+            victim.preempted = true;
+            victim.command.suspend();
+        }
+    }
+
+    /**
+     * 下载结束，被抢占的下载重新排在同优先级队首
+     *
+     * @param task 下载
+     */
+    private synchronized void finished(Task task) {
+        running.remove(task);
+        int count = getHostCount(task.host) - 1;
+        if (count <= 0) {
+            hosts.remove(task.host);
+        } else {
+            hosts.put(task.host, count);
+        }
+        if (task.preempted) {
+            task.preempted = false;
+            //挂起后被用户暂停或取消时不再排队
+            if (!task.command.isFinished() && !task.command.isCancel() && task.command.isSuspended()) {
+                task.command.resume();
+                lanes.get(task.priority).addFirst(task);
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * 获取主机连接数
+     *
+     * @param host 主机
+     * @return
+     */
+    private int getHostCount(String host) {
+        Integer count = hosts.get(host);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 获取主机
+     *
+     * @param url 资源链接
+     * @return
+     */
+    private static String host(String url) {
+        try {
+            return new URL(url).getHost();
+        } catch (MalformedURLException e) {
+            return "";
+        }
+    }
+
+    /**
+     * 调度任务
+     */
+    private class Task implements Runnable {
+
+        private final Command command;
+        private final int priority;
+        private final String host;
+        private boolean preempted;
+
+        Task(Command command, int priority, String host) {
+            this.command = command;
+            this.priority = priority;
+            this.host = host;
+        }
+
+        @Override
+        public void run() {
+            try {
+                command.run();
+            } finally {
+                finished(this);
+            }
+        }
+
+    }
+
+}
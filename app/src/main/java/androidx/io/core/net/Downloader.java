@@ -2,6 +2,8 @@ package androidx.io.core.net;
 
 import android.content.Context;
 
+import java.io.File;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -11,7 +13,11 @@ import java.util.concurrent.Executors;
 public class Downloader {
 
     private Command command;
+    private Command shared;
     private ExecutorService service;
+    private boolean customService;
+    private DownloadScheduler scheduler;
+    private int priority = DownloadScheduler.PRIORITY_NORMAL;
 
     /**
      * 构建下载器
@@ -31,6 +37,7 @@ public class Downloader {
      */
     public void setService(ExecutorService service) {
         this.service = service;
+        this.customService = true;
     }
 
     /**
@@ -60,6 +67,15 @@ public class Downloader {
         command.setDirName(dirName);
     }
 
+    /**
+     * 设置下载的目标文件，设置后不再使用缓存文件夹和链接文件名
+     *
+     * @param target 目标文件
+     */
+    public void setTarget(File target) {
+        command.setTarget(target);
+    }
+
     /**
      * 设置是否覆盖下载
      *
@@ -75,7 +91,7 @@ public class Downloader {
      * @return
      */
     public boolean isCancel() {
-        return command.isCancel();
+        return shared != null ? shared.isCancel() : command.isCancel();
     }
 
     /**
@@ -83,6 +99,16 @@ public class Downloader {
      */
     public void cancel() {
         command.cancel();
+        if (shared != null) {
+            if (detach()) {
+                shared.cancel();
+            }
+            shared = null;
+            return;
+        }
+        if (scheduler != null && scheduler.remove(command)) {
+            CommandPool.remove(command);
+        }
     }
 
     /**
@@ -91,7 +117,7 @@ public class Downloader {
      * @return
      */
     public boolean isPause() {
-        return command.isPause();
+        return shared != null ? shared.isPause() : command.isPause();
     }
 
     /**
@@ -99,6 +125,25 @@ public class Downloader {
      */
     public void pause() {
         command.pause();
+        if (shared != null) {
+            if (detach()) {
+                shared.pause();
+            }
+            shared = null;
+        }
+    }
+
+    /**
+     * 从合并的下载中移除本下载的监听
+     *
+     * @return 合并的下载是否已没有监听
+     */
+    private boolean detach() {
+        Messenger messenger = shared.getMessenger();
+        for (OnDownloadListener listener : command.getMessenger().getOnDownloadListeners()) {
+            messenger.removeOnDownloadListener(listener);
+        }
+        return messenger.getOnDownloadListeners().isEmpty();
     }
 
     /**
@@ -112,7 +157,7 @@ public class Downloader {
     }
 
     /**
-     * 设置下载监听
+     * 设置下载监听，同时实现{@link OnDownloadSpeedListener}时随进度回调速度和剩余时间
      *
      * @param listener
      */
@@ -121,10 +166,241 @@ public class Downloader {
     }
 
     /**
-     * 开始下载
+     * 设置HTTP缓存，例如{@link HttpCache#getDefault(Context)}，
+     * 已下载的文件过期后只向服务器确认一次，未修改时直接使用本地文件。
+     *
+     * @param cache 缓存
+     */
+    public void setCache(HttpCache cache) {
+        command.setCache(cache);
+    }
+
+    /**
+     * 设置重试策略，例如{@code new RetryPolicy()}，网络中断或服务器暂时错误时
+     * 按指数退避等待后从已下载的位置继续，默认不重试
+     *
+     * @param retryPolicy 重试策略
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        command.setRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * 设置期望摘要，下载时同步计算，校验一致后才回调完成，不一致时删除文件并回调失败。
+     * 未设置时使用服务器返回的Digest或Content-MD5。
+     *
+     * @param algorithm 算法：{@link DigestVerifier#MD5}、{@link DigestVerifier#SHA_1}、{@link DigestVerifier#SHA_256}
+     * @param expected  期望摘要，十六进制或Base64
+     */
+    public void setDigest(String algorithm, String expected) {
+        command.setDigest(algorithm, expected);
+    }
+
+    /**
+     * 设置下载限速器，可与其他下载共用，下载中修改速度立即生效。
+     * 全局限速使用{@link RateLimiter#getGlobal()}。
+     *
+     * @param rateLimiter 限速器
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        command.setRateLimiter(rateLimiter);
+    }
+
+    /**
+     * 设置下载指标监听，记录连接、TLS握手、首字节耗时、吞吐量、重试和结果，
+     * 使用{@link MetricsAggregator#getDefault()}可汇总所有下载的百分位。
+     *
+     * @param listener 指标监听
+     */
+    public void setOnDownloadMetricsListener(OnDownloadMetricsListener listener) {
+        command.setOnDownloadMetricsListener(listener);
+    }
+
+    /**
+     * 设置数据消费者，下载时按顺序推送数据，例如渐进式解码、计算摘要、解析，
+     * 消费者处理完一段数据后才读取下一段。
+     *
+     * @param consumer 消费者
+     * @param saveFile 是否同时保存文件；false时不写文件，完成回调的文件为null，续传时从头下载
+     */
+    public void setConsumer(DownloadConsumer consumer, boolean saveFile) {
+        command.setConsumer(consumer, saveFile);
+    }
+
+    /**
+     * 设置解压器，压缩包边下载边解压到目标文件夹，可设置条目过滤和条目解压监听，
+     * 不保存压缩包，完成回调的文件为解压文件夹，失败时删除已解压的文件。
+     *
+     * @param extractor 解压器
+     */
+    public void setExtractor(ZipExtractor extractor) {
+        command.setExtractor(extractor);
+    }
+
+    /**
+     * 设置MediaStore下载目标，数据直接写入媒体库文件描述符，不再写缓存文件后拷贝；
+     * 暂停或失败后使用相同Uri的目标继续下载，完成后才发布条目。
+     * 实现{@link OnMediaStoreListener}的监听收到完成的Uri。
+     *
+     * @param mediaTarget 媒体库目标，例如{@link MediaStoreTarget#create}创建的待定条目
+     */
+    public void setMediaTarget(MediaStoreTarget mediaTarget) {
+        command.setMediaTarget(mediaTarget);
+    }
+
+    /**
+     * 设置镜像地址和对冲延迟，首字节超过延迟未到达时向下一个镜像发起请求，
+     * 先响应的胜出，其余请求断开；请求失败时立即切换到下一个镜像。
+     *
+     * @param mirrors    镜像地址，内容需与下载地址一致
+     * @param hedgeDelay 对冲延迟（毫秒），小于等于0时使用{@link MetricsAggregator#getDefault()}首字节耗时P95
+     */
+    public void setMirrors(List<String> mirrors, long hedgeDelay) {
+        command.setMirrors(mirrors, hedgeDelay);
+    }
+
+    /**
+     * 设置连接超时
+     *
+     * @param connectTimeout 毫秒，0表示系统默认
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        command.setConnectTimeout(connectTimeout);
+    }
+
+    /**
+     * 设置读取超时，首字节和数据读取超过时间未到达时失败，可配合重试策略
+     *
+     * @param readTimeout 毫秒，0表示系统默认
+     */
+    public void setReadTimeout(int readTimeout) {
+        command.setReadTimeout(readTimeout);
+    }
+
+    /**
+     * 设置分块校验索引地址，本地已有旧文件时只通过多范围请求下载变化的块，
+     * 拼装后使用索引中的SHA-256校验，索引不可用时删除旧文件完整下载。
+     * 索引可由{@link BlockIndex#write(java.io.File, int, java.io.OutputStream)}生成。
+     *
+     * @param blockIndexUrl 索引地址
+     */
+    public void setBlockIndex(String blockIndexUrl) {
+        command.setBlockIndex(blockIndexUrl);
+    }
+
+    /**
+     * 设置读取缓冲大小，缓冲越大系统调用次数越少，默认64KB
+     *
+     * @param bufferSize 缓冲大小（字节）
+     */
+    public void setBufferSize(int bufferSize) {
+        command.setBufferSize(bufferSize);
+    }
+
+    /**
+     * 设置进度回调间隔时间，间隔内的进度合并为最新值回调
+     *
+     * @param interval 间隔时间（毫秒），默认100
+     */
+    public void setProgressInterval(long interval) {
+        command.getMessenger().setProgressInterval(interval);
+    }
+
+    /**
+     * 设置进度回调百分比步长，百分比变化小于步长时不回调
+     *
+     * @param step 步长（1-100），默认0不限制
+     */
+    public void setProgressStep(int step) {
+        command.getMessenger().setProgressStep(step);
+    }
+
+    /**
+     * 设置分段下载数量，大于1时先探测文件大小，再按字节范围多连接并行下载，
+     * 服务器不支持范围请求时自动使用单连接下载。
+     * 未设置下载服务时使用与分段数量相同的线程池。
+     *
+     * @param segments 分段数量
+     */
+    public void setSegments(int segments) {
+        command.setSegments(segments);
+        resizeService();
+    }
+
+    /**
+     * 设置最大分段数量，分段下载中吞吐量随连接增加仍在增长时自动增加连接，直到最大数量。
+     * 未设置下载服务时使用与最大分段数量相同的线程池。
+     *
+     * @param maxSegments 最大分段数量
+     */
+    public void setMaxSegments(int maxSegments) {
+        command.setMaxSegments(maxSegments);
+        resizeService();
+    }
+
+    /**
+     * 调整默认下载服务的线程数量
+     */
+    private void resizeService() {
+        int size = command.getSegments() > 1 ? command.getMaxSegments() : 1;
+        if (!customService && size > 1) {
+            service.shutdown();
+            service = Executors.newFixedThreadPool(size);
+        }
+    }
+
+    /**
+     * 设置是否按吞吐量自适应，开启时吞吐量高增大读取缓冲（最大1MB），分段下载增加连接，默认开启
+     *
+     * @param adaptive 是否自适应
+     */
+    public void setAdaptive(boolean adaptive) {
+        command.setAdaptive(adaptive);
+    }
+
+    /**
+     * 设置下载调度器，设置后由调度器按优先级和并发限制执行下载
+     *
+     * @param scheduler 调度器，例如{@link DownloadScheduler#getDefault()}
+     */
+    public void setScheduler(DownloadScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 设置调度优先级
+     *
+     * @param priority {@link DownloadScheduler#PRIORITY_LOW}、{@link DownloadScheduler#PRIORITY_NORMAL}、
+     *                 {@link DownloadScheduler#PRIORITY_HIGH}
+     */
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * 开始下载，相同链接、Header和文件夹的下载正在进行时，
+     * 只把下载监听加入正在进行的下载，共享进度和结果，不再重复连接。
+     * 设置了数据消费者或解压器、或者校验和连接设置不同的下载不合并。
+     * 合并后暂停、取消只移除本下载的监听，合并的下载没有监听时才暂停、取消。
      */
     public void start() {
-        service.execute(command);
+        command.resume();
+        boolean single = command.getConsumer() != null || command.getExtractor() != null;
+        shared = null;
+        if (!single) {
+            Command active = CommandPool.attach(command);
+            if (active != command) {
+                //已合并，暂停、取消作用于合并的下载
+                shared = active;
+                return;
+            }
+        }
+        command.setService(service);
+        if (scheduler != null) {
+            scheduler.enqueue(command, priority);
+        } else {
+            service.execute(command);
+        }
     }
 
 }
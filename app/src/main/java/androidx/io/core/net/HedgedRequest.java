@@ -0,0 +1,219 @@
+package androidx.io.core.net;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对冲请求，首字节超过延迟未到达时向下一个镜像发起请求，先响应的胜出，其余断开；
+ * 请求失败时立即切换到下一个镜像。
+ */
+public class HedgedRequest {
+
+    public String TAG = HedgedRequest.class.getSimpleName();
+
+    /**
+     * 等待结果时检查暂停、取消的间隔（毫秒）
+     */
+    private static final long POLL_INTERVAL = 200;
+    /**
+     * 请求线程池，与下载线程池分开，避免单线程下载池中等待自身
+     */
+    private static final ExecutorService service = Executors.newCachedThreadPool();
+
+    private Command command;
+    private List<String> urls;
+    private long delay;
+    private long start;
+    private long end;
+    private boolean decided;
+    private final List<Attempt> attempts = new ArrayList<>();
+    private final LinkedBlockingQueue<Attempt> results = new LinkedBlockingQueue<>();
+
+    /**
+     * 构建对冲请求
+     *
+     * @param command 下载命令
+     * @param urls    资源地址和镜像地址
+     * @param delay   对冲延迟（毫秒）
+     * @param start   开始位置，小于0表示不设置RANGE
+     * @param end     结束位置（包含），小于0表示到文件末尾
+     */
+    public HedgedRequest(Command command, List<String> urls, long delay, long start, long end) {
+        this.command = command;
+        this.urls = urls;
+        this.delay = delay;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * 执行请求
+     *
+     * @return 已连接的胜出请求，全部失败时返回最后一个有响应的请求
+     * @throws IOException 全部请求没有响应，或等待时暂停、取消
+     */
+    public HttpURLConnection execute() throws IOException {
+        int next = 0;
+        int pending = 0;
+        Attempt fallback = null;
+        IOException error = null;
+        launch(urls.get(next++));
+        pending++;
+        long hedgeAt = SystemClock.uptimeMillis() + delay;
+        try {
+            while (pending > 0) {
+                if (command.isCancel() || command.isPause()) {
+                    decide(null);
+                    throw new InterruptedIOException("Hedged request stopped");
+                }
+                long wait = POLL_INTERVAL;
+                if (next < urls.size()) {
+                    wait = Math.max(0, Math.min(wait, hedgeAt - SystemClock.uptimeMillis()));
+                }
+                Attempt result = results.poll(wait, TimeUnit.MILLISECONDS);
+                if (result == null) {
+                    if (next < urls.size() && SystemClock.uptimeMillis() >= hedgeAt) {
+                        Log.i(TAG, "hedge after " + delay + "ms: " + urls.get(next));
+                        launch(urls.get(next++));
+                        pending++;
+                        hedgeAt = SystemClock.uptimeMillis() + delay;
+                    }
+                    continue;
+                }
+                pending--;
+                if (result.error == null && !isFailover(result.code)) {
+                    decide(result);
+                    Log.i(TAG, "winner: " + result.url + ", code: " + result.code);
+                    return result.connection;
+                }
+                if (result.error != null) {
+                    error = result.error;
+                } else {
+                    if (fallback != null) {
+                        fallback.cancel();
+                    }
+                    fallback = result;
+                }
+                if (next < urls.size() && !command.isCancel() && !command.isPause()) {
+                    Log.i(TAG, "failover: " + urls.get(next));
+                    launch(urls.get(next++));
+                    pending++;
+                    hedgeAt = SystemClock.uptimeMillis() + delay;
+                }
+            }
+        } catch (InterruptedException e) {
+            decide(null);
+            throw new InterruptedIOException("Hedged request interrupted");
+        }
+        if (fallback != null) {
+            return fallback.connection;
+        }
+        throw error;
+    }
+
+    /**
+     * 是否切换镜像，客户端错误和服务器错误切换，416表示已下载完成不切换
+     *
+     * @param code 状态码
+     * @return
+     */
+    private boolean isFailover(int code) {
+        return code >= 400 && code != 416;
+    }
+
+    /**
+     * 发起请求
+     *
+     * @param url 地址
+     */
+    private void launch(final String url) {
+        final Attempt attempt = new Attempt(url);
+        synchronized (this) {
+            attempts.add(attempt);
+        }
+        service.execute(new Runnable() {
+            @Override
+            public void run() {
+                attempt.execute();
+                boolean lost;
+                synchronized (HedgedRequest.this) {
+                    lost = decided;
+                }
+                if (lost) {
+                    attempt.cancel();
+                } else {
+                    results.offer(attempt);
+                }
+            }
+        });
+    }
+
+    /**
+     * 决定胜出请求，断开其余请求
+     *
+     * @param winner 胜出请求，null表示全部断开
+     */
+    private void decide(Attempt winner) {
+        List<Attempt> losers = new ArrayList<>();
+        synchronized (this) {
+            decided = true;
+            for (Attempt attempt : attempts) {
+                if (attempt != winner) {
+                    losers.add(attempt);
+                }
+            }
+        }
+        for (Attempt attempt : losers) {
+            attempt.cancel();
+        }
+    }
+
+    /**
+     * 单个请求
+     */
+    private class Attempt {
+
+        private String url;
+        private volatile HttpURLConnection connection;
+        private volatile boolean cancelled;
+        private int code;
+        private IOException error;
+
+        Attempt(String url) {
+            this.url = url;
+        }
+
+        void execute() {
+            try {
+                connection = command.openConnection(url, start, end);
+                if (cancelled) {
+                    connection.disconnect();
+                    throw new InterruptedIOException("Hedged request cancelled");
+                }
+                code = command.connect(connection);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            HttpURLConnection connection = this.connection;
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+
+    }
+
+}
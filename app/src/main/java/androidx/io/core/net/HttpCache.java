@@ -0,0 +1,356 @@
+package androidx.io.core.net;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 下载文件的HTTP缓存，记录ETag、Last-Modified、Cache-Control，
+ * 再次下载时先按有效期判断，过期后用If-None-Match、If-Modified-Since向服务器确认，
+ * 返回304时直接使用本地文件，超过容量时按最近最少使用淘汰。
+ */
+public class HttpCache {
+
+    public String TAG = HttpCache.class.getSimpleName();
+
+    /**
+     * 默认缓存容量
+     */
+    public static final long DEFAULT_MAX_SIZE = 200L * 1024 * 1024;
+    /**
+     * 不允许缓存
+     */
+    public static final long NO_STORE = -1;
+
+    private static volatile HttpCache cache;
+
+    private File dir;
+    private File index;
+    private long maxSize;
+    private LinkedHashMap<String, Entry> entries;
+
+    /**
+     * 构建缓存
+     *
+     * @param dir     缓存索引文件夹
+     * @param maxSize 缓存容量
+     */
+    public HttpCache(File dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.index = new File(dir, "index");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        load();
+    }
+
+    /**
+     * 获取默认缓存
+     *
+     * @param context 上下文
+     * @return
+     */
+    public static HttpCache getDefault(Context context) {
+        if (cache == null) {
+            synchronized (HttpCache.class) {
+                if (cache == null) {
+                    cache = new HttpCache(new File(context.getExternalCacheDir(), "HttpCache"), DEFAULT_MAX_SIZE);
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * 设置缓存容量
+     *
+     * @param maxSize 缓存容量
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        evict(null);
+    }
+
+    /**
+     * 获取缓存占用大小
+     *
+     * @return
+     */
+    public synchronized long getSize() {
+        long size = 0;
+        for (Entry entry : entries.values()) {
+            size += entry.length;
+        }
+        return size;
+    }
+
+    /**
+     * 获取缓存记录，文件不存在或大小不一致时移除记录
+     *
+     * @param key 下载标识
+     * @return
+     */
+    public synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        File file = new File(entry.path);
+        if (!file.exists() || file.length() != entry.length) {
+            entries.remove(key);
+            save();
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 保存缓存记录
+     *
+     * @param key          下载标识
+     * @param file         下载文件
+     * @param etag         ETag
+     * @param lastModified Last-Modified
+     * @param expires      过期时间，{@link #NO_STORE}表示不缓存
+     */
+    public synchronized void put(String key, File file, String etag, String lastModified, long expires) {
+        if (expires == NO_STORE) {
+            remove(key);
+            return;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            entry.key = key;
+        }
+        entry.path = file.getAbsolutePath();
+        entry.length = file.length();
+        entry.etag = etag != null ? etag : entry.etag;
+        entry.lastModified = lastModified != null ? lastModified : entry.lastModified;
+        entry.expires = expires;
+        entries.put(key, entry);
+        evict(key);
+        save();
+    }
+
+    /**
+     * 服务器确认未修改后更新过期时间
+     *
+     * @param key     下载标识
+     * @param expires 过期时间
+     */
+    public synchronized void update(String key, long expires) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.expires = expires;
+            save();
+        }
+    }
+
+    /**
+     * 移除缓存记录
+     *
+     * @param key 下载标识
+     */
+    public synchronized void remove(String key) {
+        if (entries.remove(key) != null) {
+            save();
+        }
+    }
+
+    /**
+     * 超过容量时按最近最少使用删除缓存文件
+     *
+     * @param keep 保留的下载标识
+     */
+    private void evict(String keep) {
+        long size = getSize();
+        List<String> removes = new ArrayList<>();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry.key.equals(keep)) {
+                continue;
+            }
+            size -= entry.length;
+            removes.add(entry.key);
+            new File(entry.path).delete();
+            Log.i(TAG, "evict: " + entry.path);
+        }
+        for (String key : removes) {
+            entries.remove(key);
+        }
+        if (removes.size() > 0) {
+            save();
+        }
+    }
+
+    /**
+     * 读取索引
+     */
+    private void load() {
+        if (!index.exists()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(index));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split("\t", -1);
+                if (values.length != 6) {
+                    continue;
+                }
+                Entry entry = new Entry();
+                entry.key = values[0];
+                entry.path = values[1];
+                entry.etag = values[2].length() == 0 ? null : values[2];
+                entry.lastModified = values[3].length() == 0 ? null : values[3];
+                entry.expires = Long.parseLong(values[4]);
+                entry.length = Long.parseLong(values[5]);
+                entries.put(entry.key, entry);
+            }
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                if (reader != null) {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 保存索引
+     */
+    private void save() {
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        FileWriter writer = null;
+        try {
+            writer = new FileWriter(index);
+            for (Entry entry : entries.values()) {
+                writer.write(entry.key + "\t" + entry.path + "\t" + (entry.etag == null ? "" : entry.etag) + "\t"
+                        + (entry.lastModified == null ? "" : entry.lastModified) + "\t" + entry.expires + "\t" + entry.length + "\n");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 解析过期时间，优先Cache-Control，其次Expires；
+     * 先读取全部指令，no-store优先，其次no-cache，再次max-age
+     *
+     * @param connection 连接
+     * @return 过期时间，{@link #NO_STORE}表示不缓存，0表示每次都需要确认
+     */
+    public static long parseExpires(HttpURLConnection connection) {
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        if (cacheControl != null) {
+            boolean noCache = false;
+            String maxAge = null;
+            for (String directive : cacheControl.toLowerCase().split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-store")) {
+                    return NO_STORE;
+                }
+                if (directive.equals("no-cache")) {
+                    noCache = true;
+                } else if (directive.startsWith("max-age=") && maxAge == null) {
+                    maxAge = directive.substring(8).trim();
+                }
+            }
+            if (noCache) {
+                return 0;
+            }
+            if (maxAge != null) {
+                try {
+                    return System.currentTimeMillis() + Long.parseLong(maxAge) * 1000;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return connection.getExpiration();
+    }
+
+    /**
+     * 缓存记录
+     */
+    public static class Entry {
+
+        private String key;
+        private String path;
+        private String etag;
+        private String lastModified;
+        private long expires;
+        private long length;
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public long getExpires() {
+            return expires;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * 是否在有效期内
+         *
+         * @return
+         */
+        public boolean isFresh() {
+            return expires > System.currentTimeMillis();
+        }
+
+        /**
+         * 是否可以向服务器确认
+         *
+         * @return
+         */
+        public boolean isValidatable() {
+            return etag != null || lastModified != null;
+        }
+
+    }
+
+}
@@ -0,0 +1,26 @@
+package androidx.io.core.net;
+
+import java.io.IOException;
+
+/**
+ * HTTP状态码异常
+ */
+public class HttpException extends IOException {
+
+    private int code;
+
+    public HttpException(int code, String message) {
+        super("HTTP " + code + (message == null ? "" : " " + message));
+        this.code = code;
+    }
+
+    /**
+     * 获取状态码
+     *
+     * @return
+     */
+    public int getCode() {
+        return code;
+    }
+
+}
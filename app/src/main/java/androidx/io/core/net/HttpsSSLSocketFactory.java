@@ -1,28 +1,253 @@
 package androidx.io.core.net;
 
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URL;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 
 public class HttpsSSLSocketFactory {
 
-    public static SSLSocketFactory factory() {
-        SSLContext sslContext = null;
+    public static String TAG = HttpsSSLSocketFactory.class.getSimpleName();
+
+    /**
+     * 默认会话缓存数量
+     */
+    public static final int DEFAULT_SESSION_CACHE_SIZE = 64;
+    /**
+     * 默认会话超时时间（秒）
+     */
+    public static final int DEFAULT_SESSION_TIMEOUT = 24 * 60 * 60;
+
+    private static SSLContext sslContext;
+    private static SSLSocketFactory socketFactory;
+    private static int sessionCacheSize = DEFAULT_SESSION_CACHE_SIZE;
+    private static int sessionTimeout = DEFAULT_SESSION_TIMEOUT;
+    private static ExecutorService service;
+    private static final ThreadLocal<DownloadMetrics> tracked = new ThreadLocal<>();
+
+    /**
+     * 获取共享的SSLContext，首次调用时初始化，后续连接共用会话缓存以便恢复TLS会话
+     *
+     * @return
+     */
+    public static synchronized SSLContext context() {
+        if (sslContext == null) {
+            try {
+                SSLContext context = SSLContext.getInstance("SSL");
+                TrustManager[] tm = {new HttpsX509TrustManager()};
+                context.init(null, tm, new java.security.SecureRandom());
+                sslContext = context;
+                applySessionConfig();
+            } catch (NoSuchAlgorithmException e) {
+                e.printStackTrace();
+            } catch (KeyManagementException e) {
+                e.printStackTrace();
+            }
+        }
+        return sslContext;
+    }
+
+    public static synchronized SSLSocketFactory factory() {
+        if (socketFactory == null) {
+            SSLContext context = context();
+            if (context == null) {
+                return null;
+            }
+            socketFactory = new TimingSocketFactory(context.getSocketFactory());
+        }
+        return socketFactory;
+    }
+
+    /**
+     * 记录当前线程接下来建立的TLS连接的握手耗时，连接后传null结束记录
+     *
+     * @param metrics 下载指标，null表示不记录
+     */
+    static void track(DownloadMetrics metrics) {
+        if (metrics == null) {
+            tracked.remove();
+        } else {
+            tracked.set(metrics);
+        }
+    }
+
+    /**
+     * 设置会话缓存数量
+     *
+     * @param size 缓存数量，0表示不限制
+     */
+    public static synchronized void setSessionCacheSize(int size) {
+        sessionCacheSize = Math.max(0, size);
+        applySessionConfig();
+    }
+
+    /**
+     * 设置会话超时时间
+     *
+     * @param seconds 超时时间（秒），0表示不限制
+     */
+    public static synchronized void setSessionTimeout(int seconds) {
+        sessionTimeout = Math.max(0, seconds);
+        applySessionConfig();
+    }
+
+    /**
+     * 应用会话缓存配置
+     */
+    private static void applySessionConfig() {
+        if (sslContext == null) {
+            return;
+        }
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        if (sessionContext != null) {
+            sessionContext.setSessionCacheSize(sessionCacheSize);
+            sessionContext.setSessionTimeout(sessionTimeout);
+        }
+    }
+
+    /**
+     * 预先完成TLS握手，会话进入缓存，之后对该主机的下载可恢复会话跳过完整握手，需在子线程调用
+     *
+     * @param host 主机
+     * @param port 端口
+     * @throws IOException
+     */
+    public static void warmUp(String host, int port) throws IOException {
+        SSLSocketFactory factory = factory();
+        if (factory == null) {
+            return;
+        }
+        SSLSocket socket = (SSLSocket) factory.createSocket(host, port);
         try {
-            sslContext = SSLContext.getInstance("SSL");
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
+            socket.startHandshake();
+            Log.i(TAG, "warm up: " + host + ":" + port);
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * 后台预连接，只处理HTTPS链接
+     *
+     * @param url 资源链接
+     */
+    public static void preconnect(final String url) {
+        if (url == null || !url.toUpperCase().startsWith("HTTPS")) {
+            return;
         }
-        TrustManager[] tm = {new HttpsX509TrustManager()};
+        final URL httpUrl;
         try {
-            sslContext.init(null, tm, new java.security.SecureRandom());
-        } catch (KeyManagementException e) {
+            httpUrl = new URL(url);
+        } catch (MalformedURLException e) {
             e.printStackTrace();
+            return;
         }
-        return sslContext.getSocketFactory();
+        synchronized (HttpsSSLSocketFactory.class) {
+            if (service == null) {
+                service = Executors.newSingleThreadExecutor();
+            }
+        }
+        service.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int port = httpUrl.getPort() == -1 ? httpUrl.getDefaultPort() : httpUrl.getPort();
+                    warmUp(httpUrl.getHost(), port);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * 记录握手耗时的SocketFactory，从创建SSLSocket到握手完成，
+     * 不主动握手，SNI、ALPN等仍由连接在握手前设置
+     */
+    private static class TimingSocketFactory extends SSLSocketFactory {
+
+        private SSLSocketFactory factory;
+
+        TimingSocketFactory(SSLSocketFactory factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * 为当前线程记录的下载添加握手监听
+         *
+         * @param socket 连接
+         * @return
+         */
+        private Socket track(Socket socket) {
+            final DownloadMetrics metrics = tracked.get();
+            if (metrics != null && socket instanceof SSLSocket) {
+                final long start = System.nanoTime();
+                ((SSLSocket) socket).addHandshakeCompletedListener(new HandshakeCompletedListener() {
+                    @Override
+                    public void handshakeCompleted(HandshakeCompletedEvent event) {
+                        metrics.onTls((System.nanoTime() - start) / 1000000);
+                        event.getSocket().removeHandshakeCompletedListener(this);
+                    }
+                });
+            }
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return factory.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return factory.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return track(factory.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return track(factory.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return track(factory.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return track(factory.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return track(factory.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return track(factory.createSocket(address, port, localAddress, localPort));
+        }
+
     }
 
 }
@@ -4,12 +4,18 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
 import java.lang.reflect.Array;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -95,17 +101,7 @@ public class JSON {
         if (fieldName == null || fieldName.length() == 0) {
             return false;
         }
-        Field[] fields = findClassDeclaredFields(clazz);
-        for (int i = 0; i < fields.length; i++) {
-            String name = fields[i].getName();
-            if (name == null) {
-                return false;
-            }
-            if (fieldName.equals(name)) {
-                return true;
-            }
-        }
-        return false;
+        return ClassBinding.of(clazz).getDeclaredField(fieldName) != null;
     }
 
     /**
@@ -114,50 +110,26 @@ public class JSON {
      * @return 数组实例
      */
     public static Object newArrayInstance(Class componentType, JSONArray jsonArray) {
-        Object arrayObj = Array.newInstance(componentType, jsonArray.length());
-        for (int i = 0; i < jsonArray.length(); i++) {
-            Object obj = null;
+        return newArrayInstance(componentType, toList(jsonArray, componentType, false));
+    }
+
+    /**
+     * @param componentType 组件类型
+     * @param items         元素，null元素保持默认值
+     * @return 数组实例
+     */
+    public static Object newArrayInstance(Class componentType, List<?> items) {
+        Object arrayObj = Array.newInstance(componentType, items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Object item = items.get(i);
+            if (item == null) {
+                continue;
+            }
             try {
-                obj = jsonArray.get(i);
-            } catch (JSONException e) {
+                Array.set(arrayObj, i, item);
+            } catch (IllegalArgumentException e) {
                 e.printStackTrace();
             }
-            if (componentType == String.class) {
-                String[] array = (String[]) arrayObj;
-                array[i] = (String) obj;
-            }
-            if (componentType == Character.class) {
-                Character[] array = (Character[]) arrayObj;
-                array[i] = (Character) obj;
-            }
-            if (componentType == CharSequence.class) {
-                CharSequence[] array = (CharSequence[]) arrayObj;
-                array[i] = (CharSequence) obj;
-            }
-            if (componentType == int.class) {
-                int[] array = (int[]) arrayObj;
-                array[i] = (int) obj;
-            }
-            if (componentType == long.class) {
-                long[] array = (long[]) arrayObj;
-                array[i] = (long) obj;
-            }
-            if (componentType == double.class) {
-                double[] array = (double[]) arrayObj;
-                array[i] = (double) obj;
-            }
-            if (componentType == float.class) {
-                float[] array = (float[]) arrayObj;
-                array[i] = (float) obj;
-            }
-            if (componentType == short.class) {
-                short[] array = (short[]) arrayObj;
-                array[i] = (short) obj;
-            }
-            if (componentType == boolean.class) {
-                boolean[] array = (boolean[]) arrayObj;
-                array[i] = (boolean) obj;
-            }
         }
         return arrayObj;
     }
@@ -173,9 +145,12 @@ public class JSON {
         try {
             Class fieldType = field.getType();
             //字符
-            if (fieldType == String.class || fieldType == Character.class || fieldType == CharSequence.class) {
+            if (fieldType == String.class || fieldType == CharSequence.class) {
                 field.set(bean, value);
             }
+            if ((fieldType == char.class || fieldType == Character.class) && value.length() > 0) {
+                field.set(bean, value.charAt(0));
+            }
             //Int类型
             if (fieldType == int.class || fieldType == Integer.class) {
                 if (!value.contains(".")) {
@@ -221,7 +196,7 @@ public class JSON {
                 }
                 field.set(bean, booleanValue);
             }
-        } catch (IllegalAccessException e) {
+        } catch (IllegalAccessException | IllegalArgumentException e) {
             e.printStackTrace();
         }
     }
@@ -232,13 +207,7 @@ public class JSON {
      * @return 本类及其父类寻找是否有此类
      */
     public static Field findClassField(Class clazz, String name) {
-        for (Field field : findClassDeclaredFields(clazz)) {
-            field.setAccessible(true);
-            if (field.getName().equals(name)) {
-                return field;
-            }
-        }
-        return null;
+        return ClassBinding.of(clazz).getDeclaredField(name);
     }
 
 
@@ -248,32 +217,21 @@ public class JSON {
      * @return JsonObject转对象
      */
     public static <T> T toObject(JSONObject object, Class<T> clazz) {
-        T bean = null;
         if (clazz == null || object == null) {
             return null;
         }
-        try {
-            Constructor<?>[] constructors = clazz.getDeclaredConstructors();
-            if (constructors.length == 0) {
-                bean = clazz.newInstance();
-            } else {
-                Constructor constructor = constructors[0];
-                constructor.setAccessible(true);
-                bean = (T) constructor.newInstance();
-            }
-            Iterator<String> iterator = object.keys();
-            while (iterator.hasNext()) {
-                String key = iterator.next();
-                if (isDeclaredField(clazz, key)) {
-                    setObjectValue(clazz, bean, object, key);
-                }
+        ClassBinding binding = ClassBinding.of(clazz);
+        T bean = (T) binding.newInstance();
+        if (bean == null) {
+            return null;
+        }
+        Iterator<String> iterator = object.keys();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            ClassBinding.FieldBinding field = binding.getField(key);
+            if (field != null) {
+                setObjectValue(field, bean, object, key);
             }
-        } catch (InstantiationException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        } catch (InvocationTargetException e) {
-            e.printStackTrace();
         }
         return bean;
     }
@@ -288,77 +246,166 @@ public class JSON {
      * @param <T>       实体
      */
     public static <T> void setObjectValue(Class<T> clazz, T clazzBean, JSONObject object, String fieldName) {
+        ClassBinding.FieldBinding binding = ClassBinding.of(clazz).getField(fieldName);
+        if (binding != null) {
+            setObjectValue(binding, clazzBean, object, fieldName);
+        }
+    }
+
+    /**
+     * 设置对象值
+     *
+     * @param binding   字段绑定信息
+     * @param clazzBean 对象实例化
+     * @param object    json对象
+     * @param fieldName 字段名称
+     */
+    private static void setObjectValue(ClassBinding.FieldBinding binding, Object clazzBean, JSONObject object, String fieldName) {
+        Field field = binding.getField();
+        Object value = object.opt(fieldName);
+        if (binding.getCategory() == ClassBinding.CATEGORY_PRIMITIVE) {
+            //Primitive
+            String valueString = String.valueOf(value);
+            setFieldValue(field, clazzBean, isNone(valueString) ? "" : valueString);
+            return;
+        }
+        Class elementType = binding.getElementType();
+        if (binding.getCategory() == ClassBinding.CATEGORY_COLLECTION) {
+            //Collection，泛型参数未知时不设置
+            value = elementType == null ? null : toValue(value, binding.getType(), elementType);
+        } else if (binding.getCategory() == ClassBinding.CATEGORY_MAP) {
+            //Map
+            value = toValue(value, binding.getType(), elementType);
+        } else {
+            //Array、JSONObject、JSONArray、Object
+            value = toValue(value, binding.getType(), null);
+        }
+        if (value == null) {
+            return;
+        }
         try {
-            Field field = findClassField(clazz, fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                Object value = object.get(fieldName);
-                String valueString = String.valueOf(value);
-                valueString = isNone(valueString) ? "" : valueString;
-                Class fieldType = field.getType();
-                if (isPrimitive(fieldType)) {
-                    //Primitive
-                    setFieldValue(field, clazzBean, valueString);
-                } else {
-                    //Collection
-                    if (Collection.class.isAssignableFrom(fieldType)) {
-                        Type genericType = field.getGenericType();
-                        if (genericType instanceof ParameterizedType) {
-                            ParameterizedType parameterizedType = (ParameterizedType) genericType;
-                            Class argumentsClazz = (Class) parameterizedType.getActualTypeArguments()[0];
-                            if (isPrimitive(argumentsClazz)) {
-                                field.set(clazzBean, toCollection(valueString, argumentsClazz));
-                            } else {
-                                field.set(clazzBean, toCollection(field, argumentsClazz, valueString));
-                            }
-                        }
-                    } else if (fieldType.isArray()) {
-                        //Array
-                        JSONArray jsonArray = (JSONArray) value;
-                        Class componentType = fieldType.getComponentType();
-                        field.set(clazzBean, newArrayInstance(componentType, jsonArray));
-                    } else if (Map.class.isAssignableFrom(fieldType)) {
-                        //Map
-                        JSONObject jsonObject = (JSONObject) value;
-                        Map<String, Object> map = new HashMap<>();
-                        Iterator it = jsonObject.keys();
-                        while (it.hasNext()) {
-                            String name = (String) it.next();
-                            Object val = jsonObject.get(name);
-                            map.put(name, val);
-                        }
-                        field.set(clazzBean, map);
-                    } else if (JSONArray.class.isAssignableFrom(fieldType)) {
-                        //JSONArray
-                        field.set(clazzBean, toCollection(valueString, fieldType));
-                    } else if (JSONObject.class.isAssignableFrom(fieldType)) {
-                        //JSONObject
-                        field.set(clazzBean, toObject(valueString, fieldType));
-                    } else if (Object.class.isAssignableFrom(fieldType)) {
-                        //Object
-                        field.set(clazzBean, toObject(valueString, fieldType));
-                    } else {
-                        field.set(clazzBean, toObject(valueString, fieldType));
-                    }
-                }
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
+            field.set(clazzBean, value);
         } catch (IllegalAccessException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * 已解析的json节点直接转换为指定类型，嵌套的JSONObject、JSONArray不再转字符串重新解析
+     *
+     * @param node        json节点
+     * @param type        类型
+     * @param elementType 集合的元素类型或Map的值类型，null时保留json节点
+     * @return 转换失败返回null
+     */
+    public static Object toValue(Object node, Class<?> type, Class<?> elementType) {
+        if (node == null || node == JSONObject.NULL) {
+            return null;
+        }
+        if (type == null || type == Object.class) {
+            return node;
+        }
+        switch (ClassBinding.categoryOf(type)) {
+            case ClassBinding.CATEGORY_PRIMITIVE:
+                if (node instanceof JSONObject || node instanceof JSONArray) {
+                    return null;
+                }
+                return convert(String.valueOf(node), type);
+            case ClassBinding.CATEGORY_COLLECTION:
+                if (!(node instanceof JSONArray)) {
+                    return null;
+                }
+                Collection<Object> collection = JSONReader.newCollection(type);
+                collection.addAll(toList((JSONArray) node, elementType, true));
+                return collection;
+            case ClassBinding.CATEGORY_ARRAY:
+                if (!(node instanceof JSONArray)) {
+                    return null;
+                }
+                return newArrayInstance(type.getComponentType(), (JSONArray) node);
+            case ClassBinding.CATEGORY_MAP:
+                if (!(node instanceof JSONObject)) {
+                    return null;
+                }
+                JSONObject jsonObject = (JSONObject) node;
+                Map<String, Object> map = new HashMap<>();
+                Iterator<String> iterator = jsonObject.keys();
+                while (iterator.hasNext()) {
+                    String key = iterator.next();
+                    Object item = jsonObject.opt(key);
+                    map.put(key, elementType == null ? item : toValue(item, elementType, null));
+                }
+                return map;
+            case ClassBinding.CATEGORY_JSON:
+                return type.isInstance(node) ? node : null;
+            default:
+                return node instanceof JSONObject ? toObject((JSONObject) node, type) : null;
+        }
+    }
+
+    /**
+     * 转换json数组的元素
+     *
+     * @param array    json数组
+     * @param type     元素类型，null时保留json节点
+     * @param skipNull 是否跳过null元素
+     * @return 元素列表
+     */
+    private static List<Object> toList(JSONArray array, Class<?> type, boolean skipNull) {
+        List<Object> list = new ArrayList<>();
+        int length = array == null ? 0 : array.length();
+        for (int i = 0; i < length; i++) {
+            Object item = array.opt(i);
+            item = type == null ? (item == JSONObject.NULL ? null : item) : toValue(item, type, null);
+            if (item != null || !skipNull) {
+                list.add(item);
+            }
+        }
+        return list;
+    }
+
     /**
      * @param json  字符串
      * @param clazz 类
      * @return 数据对象
      */
     public static <T> T toObject(String json, Class<T> clazz) {
-        if (isNone(json)) {
+        if (isNone(json) || clazz == null) {
             return null;
         }
-        return toObject(toJSONObject(json), clazz);
+        return toObject(new StringReader(json), clazz);
+    }
+
+    /**
+     * 流式读取对象，不构建中间JSONObject
+     *
+     * @param reader 字符流，读取后关闭
+     * @param clazz  类
+     * @return 数据对象，格式错误返回null
+     */
+    public static <T> T toObject(Reader reader, Class<T> clazz) {
+        JSONReader jsonReader = new JSONReader(reader);
+        try {
+            T bean = jsonReader.readObject(clazz);
+            jsonReader.endDocument();
+            return bean;
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            close(jsonReader);
+        }
+        return null;
+    }
+
+    /**
+     * 流式读取对象，UTF-8编码
+     *
+     * @param is    输入流，读取后关闭
+     * @param clazz 类
+     * @return 数据对象，格式错误返回null
+     */
+    public static <T> T toObject(InputStream is, Class<T> clazz) {
+        return toObject(new InputStreamReader(is, Charset.forName("UTF-8")), clazz);
     }
 
     /**
@@ -429,30 +476,11 @@ public class JSON {
      * @return JsonArray转List对象
      */
     public static <T> List<T> toCollection(Field field, Class<T> clazz, String json) {
-        List<T> list = null;
-        try {
-            if (field.getType() == List.class) {
-                list = new ArrayList<>();
-            } else {
-                list = (List<T>) field.getType().newInstance();
-            }
-            if (isJSONArray(json)) {
-                JSONArray jsonArray = toJSONArray(json);
-                int size = jsonArray == null ? 0 : jsonArray.length();
-                for (int i = 0; i < size; i++) {
-                    JSONObject jsonObject = (JSONObject) jsonArray.get(i);
-                    T t = toObject(jsonObject, clazz);
-                    list.add(t);
-                }
-            }
-        } catch (InstantiationException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        } catch (JSONException e) {
-            e.printStackTrace();
+        Collection<Object> collection = JSONReader.newCollection(field.getType());
+        if (isJSONArray(json)) {
+            collection.addAll(toList(toJSONArray(json), clazz, true));
         }
-        return list;
+        return collection instanceof List ? (List<T>) collection : new ArrayList<>((Collection<T>) collection);
     }
 
     /**
@@ -467,13 +495,8 @@ public class JSON {
         if (array == null) {
             return list;
         }
-        for (int i = 0; i < array.length(); i++) {
-            try {
-                JSONObject jsonObject = (JSONObject) array.get(i);
-                list.add(toObject(jsonObject, clazz));
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
+        for (Object item : toList(array, clazz, true)) {
+            list.add((T) item);
         }
         return list;
     }
@@ -486,22 +509,123 @@ public class JSON {
      * @return 列表数据
      */
     public static <T> List<T> toCollection(String json, Class<T> clazz) {
-        List<T> list = new ArrayList<>();
+        if (isNone(json)) {
+            return new ArrayList<>();
+        }
+        return toCollection(new StringReader(json), clazz);
+    }
+
+    /**
+     * 流式读取列表，元素为null时跳过
+     *
+     * @param reader 字符流，读取后关闭
+     * @param clazz  元素类
+     * @return 列表数据，格式错误返回空列表
+     */
+    public static <T> List<T> toCollection(Reader reader, Class<T> clazz) {
+        JSONReader jsonReader = new JSONReader(reader);
         try {
-            JSONArray jsonArray = new JSONArray(json);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                Object obj = jsonArray.get(i);
-                if (isPrimitive(obj.getClass())) {
-                    list.add((T) obj);
-                }
-                if (obj.getClass().isAssignableFrom(JSONObject.class)) {
-                    list.add(toObject((JSONObject) obj, clazz));
-                }
+            List<T> list = jsonReader.readCollection(clazz);
+            jsonReader.endDocument();
+            if (list != null) {
+                return list;
             }
-        } catch (JSONException e) {
+        } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            close(jsonReader);
         }
-        return list;
+        return new ArrayList<>();
+    }
+
+    /**
+     * 流式读取列表，UTF-8编码
+     *
+     * @param is    输入流，读取后关闭
+     * @param clazz 元素类
+     * @return 列表数据，格式错误返回空列表
+     */
+    public static <T> List<T> toCollection(InputStream is, Class<T> clazz) {
+        return toCollection(new InputStreamReader(is, Charset.forName("UTF-8")), clazz);
+    }
+
+    /**
+     * 关闭读取器
+     *
+     * @param reader 读取器
+     */
+    private static void close(JSONReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 文本转换为基础类型值
+     *
+     * @param value 文本
+     * @param type  基础类型
+     * @return 转换失败返回null
+     */
+    public static Object convert(String value, Class<?> type) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            boolean decimal = value.contains(".") || value.contains("e") || value.contains("E");
+            if (type == int.class || type == Integer.class) {
+                return decimal ? Double.valueOf(value).intValue() : Integer.valueOf(value);
+            }
+            if (type == long.class || type == Long.class) {
+                return decimal ? Double.valueOf(value).longValue() : Long.valueOf(value);
+            }
+            if (type == short.class || type == Short.class) {
+                return decimal ? Double.valueOf(value).shortValue() : Short.valueOf(value);
+            }
+            if (type == byte.class || type == Byte.class) {
+                return decimal ? Double.valueOf(value).byteValue() : Byte.valueOf(value);
+            }
+            if (type == double.class || type == Double.class) {
+                return Double.valueOf(value);
+            }
+            if (type == float.class || type == Float.class) {
+                return Float.valueOf(value);
+            }
+            if (type == boolean.class || type == Boolean.class) {
+                return value.equals("true") || value.equals("1");
+            }
+            if (type == char.class || type == Character.class) {
+                return value.length() == 0 ? null : value.charAt(0);
+            }
+        } catch (NumberFormatException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * 数字文本转换为Integer、Long或Double
+     *
+     * @param value 数字文本
+     * @return
+     * @throws NumberFormatException 格式错误
+     */
+    public static Number parseNumber(String value) {
+        if (!value.contains(".") && !value.contains("e") && !value.contains("E")) {
+            try {
+                long number = Long.parseLong(value);
+                if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+                    return (int) number;
+                }
+                return number;
+            } catch (NumberFormatException e) {
+                //超出Long范围
+            }
+        }
+        return Double.valueOf(value);
     }
 
     /**
@@ -537,16 +661,7 @@ public class JSON {
      * @return 是否预定义字段
      */
     public static boolean isPredefined(Field field) {
-        String name = field.getName();
-        for (Field f : Object.class.getDeclaredFields()) {
-            if (name.equals(f.getName())){
-                return true;
-            }
-        }
-        return name.equals("$change")
-                || name.equals("serialVersionUID")
-                || name.equals("NULL")
-                || name.equals("NEGATIVE_ZERO");
+        return ClassBinding.isPredefined(field.getName());
     }
 
     /**
@@ -592,6 +707,9 @@ public class JSON {
      * @return 当前类及其父类类声明字段
      */
     public static Field[] findClassDeclaredFields(Class clazz) {
+        if (clazz != null && ClassBinding.of(clazz).getCategory() == ClassBinding.CATEGORY_BEAN) {
+            return ClassBinding.of(clazz).getFields().clone();
+        }
         List<Field> fields = new ArrayList<>();
         while (clazz != null) {
             for (Field field : clazz.getDeclaredFields()) {
@@ -613,74 +731,45 @@ public class JSON {
         if (obj == null) {
             return "{}";
         }
-        if (Collection.class.isAssignableFrom(obj.getClass())) {
-            //Collection
-            JSONArray jsonArray = new JSONArray();
-            List<?> list = (List<?>) obj;
-            int count = list == null ? 0 : list.size();
-            //基本类型集合
-            List<Object> primitiveArray = new ArrayList<>();
-            for (int i = 0; i < count; i++) {
-                Object item = list.get(i);
-                try {
-                    if (isPrimitive(item == null ? null : item.getClass())) {
-                        primitiveArray.add(item);
-                    } else {
-                        jsonArray.put(new JSONObject(toJson(item)));
-                    }
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (primitiveArray.size() > 0) {
-                jsonArray = new JSONArray(primitiveArray);
-            }
-            return jsonArray.toString();
-        } else if (Map.class.isAssignableFrom(obj.getClass())) {
-            //Map
-            JSONObject jsonObject = new JSONObject();
-            Map<String, Object> objMap = (Map<String, Object>) obj;
-            for (String key : objMap.keySet()) {
-                Object objValue = objMap.get(key);
-                addJSONObjectKeyValue(jsonObject, key, objValue);
-            }
-            return jsonObject.toString();
-        } else if (obj.getClass().isArray()) {
-            //Array
-            JSONArray jsonArray = new JSONArray();
-            for (int i = 0; i < Array.getLength(obj); i++) {
-                jsonArray.put(Array.get(obj, i));
-            }
-            return jsonArray.toString();
-        } else {
-            //普通类
-            JSONObject jsonObject = new JSONObject();
-            Field[] fields = findClassDeclaredFields(obj.getClass());
-            if (fields.length == 0) {
-                return jsonObject.toString();
-            }
-            for (Field field : fields) {
-                field.setAccessible(true);
-                Class<?> type = field.getType();
-                String name = field.getName();
-                if (!isPredefined(field) && type != null) {
-                    try {
-                        //普通类型
-                        Object value = field.get(obj);
-                        if (isPrimitive(type)) {
-                            jsonObject.put(name, value);
-                        } else {
-                            addJSONObjectKeyValue(jsonObject, name, value);
-                        }
-                    } catch (IllegalAccessException | JSONException e) {
-                        e.printStackTrace();
-                    }
-                }
+        StringBuilder builder = new StringBuilder();
+        try {
+            new JSONWriter(builder).write(obj);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 流式写入json，不构建中间JSONObject
+     *
+     * @param obj    对象
+     * @param writer 字符流，写入后刷新，不关闭
+     */
+    public static void toJson(Object obj, Writer writer) {
+        JSONWriter jsonWriter = new JSONWriter(writer);
+        try {
+            if (obj == null) {
+                jsonWriter.beginObject().endObject();
+            } else {
+                jsonWriter.write(obj);
             }
-            return jsonObject.toString();
+            jsonWriter.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
+    /**
+     * 流式写入json，UTF-8编码
+     *
+     * @param obj 对象
+     * @param os  输出流，写入后刷新，不关闭
+     */
+    public static void toJson(Object obj, OutputStream os) {
+        toJson(obj, new BufferedWriter(new OutputStreamWriter(os, Charset.forName("UTF-8"))));
+    }
+
     /**
      * JSON格式化
      *
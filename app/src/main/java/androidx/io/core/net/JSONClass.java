@@ -0,0 +1,19 @@
+package androidx.io.core.net;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 编译时生成JSON编解码器，需要添加注解处理器：annotationProcessor 'com.github.RelinRan.IOCore:compiler:版本'，
+ * 生成的编解码器为"类名$$JSONCodec"，直接读写字段，不使用反射；
+ * 字段不能访问时使用get、set方法，静态字段和transient字段不读写。
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface JSONClass {
+
+}
@@ -0,0 +1,31 @@
+package androidx.io.core.net;
+
+import java.io.IOException;
+
+/**
+ * JSON编解码器，{@link JSONClass}注解的类在编译时生成，
+ * {@link JSON#toObject(String, Class)}、{@link JSON#toJson(Object)}优先使用，没有时使用反射
+ *
+ * @param <T> 数据类
+ */
+public interface JSONCodec<T> {
+
+    /**
+     * 读取对象
+     *
+     * @param reader 读取器
+     * @return 值为null或不是对象时返回null
+     * @throws IOException
+     */
+    T read(JSONReader reader) throws IOException;
+
+    /**
+     * 写入对象
+     *
+     * @param writer 写入器
+     * @param value  对象，不为null
+     * @throws IOException
+     */
+    void write(JSONWriter writer, T value) throws IOException;
+
+}
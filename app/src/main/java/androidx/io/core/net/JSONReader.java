@@ -0,0 +1,731 @@
+package androidx.io.core.net;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 流式JSON读取，按标记逐个读取，直接绑定到对象、集合、数组和Map，不构建中间JSONObject树
+ */
+public class JSONReader implements Closeable {
+
+    public static final int BEGIN_OBJECT = 1;
+    public static final int END_OBJECT = 2;
+    public static final int BEGIN_ARRAY = 3;
+    public static final int END_ARRAY = 4;
+    public static final int NAME = 5;
+    public static final int STRING = 6;
+    public static final int NUMBER = 7;
+    public static final int BOOLEAN = 8;
+    public static final int NULL = 9;
+    public static final int END_DOCUMENT = 10;
+
+    private static final int SCOPE_EMPTY_ARRAY = 1;
+    private static final int SCOPE_ARRAY = 2;
+    private static final int SCOPE_EMPTY_OBJECT = 3;
+    private static final int SCOPE_NAME = 4;
+    private static final int SCOPE_OBJECT = 5;
+    private static final int SCOPE_EMPTY_DOCUMENT = 6;
+    private static final int SCOPE_DOCUMENT = 7;
+
+    private Reader in;
+    private char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+    private long offset;
+    private int[] stack = new int[32];
+    private int depth;
+    private int peeked;
+    private String peekedValue;
+    private StringBuilder builder = new StringBuilder();
+
+    public JSONReader(Reader in) {
+        this.in = in;
+        stack[depth++] = SCOPE_EMPTY_DOCUMENT;
+    }
+
+    /**
+     * 查看下一个标记，不消费
+     *
+     * @return 标记类型
+     * @throws IOException 读取失败或格式错误
+     */
+    public int peek() throws IOException {
+        if (peeked != 0) {
+            return peeked;
+        }
+        int scope = stack[depth - 1];
+        int c;
+        switch (scope) {
+            case SCOPE_EMPTY_ARRAY:
+                stack[depth - 1] = SCOPE_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = END_ARRAY;
+                }
+                if (c != -1) {
+                    pos--;
+                }
+                break;
+            case SCOPE_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = END_ARRAY;
+                }
+                if (c != ',') {
+                    throw syntaxError("Expected ',' or ']'");
+                }
+                break;
+            case SCOPE_EMPTY_OBJECT:
+            case SCOPE_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = END_OBJECT;
+                }
+                if (scope == SCOPE_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected name");
+                }
+                stack[depth - 1] = SCOPE_NAME;
+                return peeked = NAME;
+            case SCOPE_NAME:
+                c = nextNonWhitespace();
+                if (c != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                stack[depth - 1] = SCOPE_OBJECT;
+                break;
+            case SCOPE_EMPTY_DOCUMENT:
+                stack[depth - 1] = SCOPE_DOCUMENT;
+                break;
+            default:
+                if (nextNonWhitespace() == -1) {
+                    return peeked = END_DOCUMENT;
+                }
+                throw syntaxError("Unexpected content after document");
+        }
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return peeked = BEGIN_OBJECT;
+            case '[':
+                return peeked = BEGIN_ARRAY;
+            case '"':
+                return peeked = STRING;
+            case 't':
+                readLiteral("rue");
+                peekedValue = "true";
+                return peeked = BOOLEAN;
+            case 'f':
+                readLiteral("alse");
+                peekedValue = "false";
+                return peeked = BOOLEAN;
+            case 'n':
+                readLiteral("ull");
+                return peeked = NULL;
+            case -1:
+                throw syntaxError("Unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    peekedValue = readNumber((char) c);
+                    return peeked = NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    public void beginObject() throws IOException {
+        expect(BEGIN_OBJECT);
+        push(SCOPE_EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(BEGIN_ARRAY);
+        push(SCOPE_EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * 当前对象或数组是否还有元素
+     *
+     * @return
+     * @throws IOException
+     */
+    public boolean hasNext() throws IOException {
+        int token = peek();
+        return token != END_OBJECT && token != END_ARRAY && token != END_DOCUMENT;
+    }
+
+    public String nextName() throws IOException {
+        expect(NAME);
+        return readString();
+    }
+
+    /**
+     * 读取字符串、数字或布尔值的文本
+     *
+     * @return
+     * @throws IOException
+     */
+    public String nextString() throws IOException {
+        int token = peek();
+        if (token == STRING) {
+            peeked = 0;
+            return readString();
+        }
+        if (token == NUMBER || token == BOOLEAN) {
+            peeked = 0;
+            return peekedValue;
+        }
+        throw syntaxError("Expected value but was " + token);
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(BOOLEAN);
+        return peekedValue.equals("true");
+    }
+
+    public void nextNull() throws IOException {
+        expect(NULL);
+    }
+
+    /**
+     * 跳过下一个值，包括嵌套的对象和数组
+     *
+     * @throws IOException
+     */
+    public void skipValue() throws IOException {
+        int count = 0;
+        do {
+            int token = peek();
+            if (token == BEGIN_OBJECT) {
+                beginObject();
+                count++;
+            } else if (token == BEGIN_ARRAY) {
+                beginArray();
+                count++;
+            } else if (token == END_OBJECT) {
+                endObject();
+                count--;
+            } else if (token == END_ARRAY) {
+                endArray();
+                count--;
+            } else if (token == NAME) {
+                nextName();
+            } else if (token == NULL) {
+                nextNull();
+            } else if (token == END_DOCUMENT) {
+                return;
+            } else {
+                nextString();
+            }
+        } while (count > 0);
+    }
+
+    /**
+     * 读取下一个值的JSON文本，对象和数组按紧凑格式写出，保留键的顺序
+     *
+     * @return
+     * @throws IOException
+     */
+    public String readJson() throws IOException {
+        StringBuilder text = new StringBuilder();
+        JSONWriter writer = new JSONWriter(text);
+        int count = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    writer.beginObject();
+                    count++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    writer.beginArray();
+                    count++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    writer.endObject();
+                    count--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    writer.endArray();
+                    count--;
+                    break;
+                case NAME:
+                    writer.name(nextName());
+                    break;
+                case NULL:
+                    nextNull();
+                    writer.nullValue();
+                    break;
+                case BOOLEAN:
+                    writer.value(nextBoolean());
+                    break;
+                case NUMBER:
+                    String number = nextString();
+                    try {
+                        writer.value(JSON.parseNumber(number));
+                    } catch (NumberFormatException e) {
+                        throw syntaxError("Invalid number " + number);
+                    }
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("Unexpected end of input");
+                default:
+                    writer.value(nextString());
+                    break;
+            }
+        } while (count > 0);
+        return text.toString();
+    }
+
+    /**
+     * 确认顶层值之后没有其他内容
+     *
+     * @throws IOException 有多余内容
+     */
+    public void endDocument() throws IOException {
+        expect(END_DOCUMENT);
+    }
+
+    /**
+     * 读取对象
+     *
+     * @param clazz 类
+     * @return 值为null或不是对象时返回null
+     * @throws IOException
+     */
+    public <T> T readObject(Class<T> clazz) throws IOException {
+        if (peek() != BEGIN_OBJECT) {
+            skipValue();
+            return null;
+        }
+        ClassBinding binding = ClassBinding.of(clazz);
+        if (binding.getCategory() != ClassBinding.CATEGORY_BEAN) {
+            return (T) readElement(clazz);
+        }
+        if (binding.getCodec() != null) {
+            return (T) binding.getCodec().read(this);
+        }
+        T bean = (T) binding.newInstance();
+        if (bean == null) {
+            skipValue();
+            return null;
+        }
+        beginObject();
+        while (hasNext()) {
+            ClassBinding.FieldBinding field = binding.getField(nextName());
+            if (field == null) {
+                skipValue();
+            } else {
+                readField(field, bean);
+            }
+        }
+        endObject();
+        return bean;
+    }
+
+    /**
+     * 读取字段值
+     *
+     * @param binding 字段绑定信息
+     * @param bean    对象
+     * @throws IOException
+     */
+    private void readField(ClassBinding.FieldBinding binding, Object bean) throws IOException {
+        Field field = binding.getField();
+        int token = peek();
+        Object value;
+        switch (binding.getCategory()) {
+            case ClassBinding.CATEGORY_PRIMITIVE:
+                String text = "";
+                if (token == BEGIN_OBJECT || token == BEGIN_ARRAY) {
+                    //与JSON.setObjectValue一致，字符串字段保存嵌套值的JSON文本
+                    if (binding.getType() != String.class) {
+                        skipValue();
+                        return;
+                    }
+                    text = readJson();
+                } else if (token == NULL) {
+                    nextNull();
+                } else {
+                    text = nextString();
+                }
+                JSON.setFieldValue(field, bean, text);
+                return;
+            case ClassBinding.CATEGORY_COLLECTION:
+                if (binding.getElementType() == null) {
+                    skipValue();
+                    return;
+                }
+                value = readCollection(binding.getType(), binding.getElementType());
+                break;
+            case ClassBinding.CATEGORY_ARRAY:
+                value = readArray(binding.getElementType());
+                break;
+            case ClassBinding.CATEGORY_MAP:
+                value = token == BEGIN_OBJECT ? readMap(binding.getElementType()) : null;
+                if (value == null) {
+                    skipValue();
+                }
+                break;
+            case ClassBinding.CATEGORY_JSON:
+                value = readAny();
+                if (value instanceof Map && JSONObject.class.isAssignableFrom(binding.getType())) {
+                    value = new JSONObject((Map) value);
+                } else if (value instanceof List && JSONArray.class.isAssignableFrom(binding.getType())) {
+                    value = new JSONArray((List) value);
+                } else {
+                    value = null;
+                }
+                break;
+            default:
+                value = readObject(binding.getType());
+                break;
+        }
+        if (value == null) {
+            return;
+        }
+        try {
+            field.set(bean, value);
+        } catch (IllegalAccessException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 读取集合
+     *
+     * @param elementType 元素类型
+     * @return 值为null或不是数组时返回null
+     * @throws IOException
+     */
+    public <T> List<T> readCollection(Class<T> elementType) throws IOException {
+        return (List<T>) readCollection(List.class, elementType);
+    }
+
+    /**
+     * 读取集合
+     *
+     * @param collectionType 集合类型，接口时使用ArrayList、LinkedHashSet
+     * @param elementType    元素类型
+     * @return 值为null或不是数组时返回null
+     * @throws IOException
+     */
+    public Collection<Object> readCollection(Class<?> collectionType, Class<?> elementType) throws IOException {
+        if (peek() != BEGIN_ARRAY) {
+            skipValue();
+            return null;
+        }
+        Collection<Object> collection = newCollection(collectionType);
+        beginArray();
+        while (hasNext()) {
+            Object item = readElement(elementType);
+            if (item != null) {
+                collection.add(item);
+            }
+        }
+        endArray();
+        return collection;
+    }
+
+    /**
+     * 创建集合实例
+     *
+     * @param type 集合类型
+     * @return
+     */
+    public static Collection<Object> newCollection(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return Set.class.isAssignableFrom(type) ? new LinkedHashSet<>() : new ArrayList<>();
+        }
+        try {
+            return (Collection<Object>) type.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * 读取数组
+     *
+     * @param componentType 组件类型
+     * @return 值为null或不是数组时返回null
+     * @throws IOException
+     */
+    public Object readArray(Class<?> componentType) throws IOException {
+        if (peek() != BEGIN_ARRAY) {
+            skipValue();
+            return null;
+        }
+        List<Object> items = new ArrayList<>();
+        beginArray();
+        while (hasNext()) {
+            items.add(readElement(componentType));
+        }
+        endArray();
+        return JSON.newArrayInstance(componentType, items);
+    }
+
+    /**
+     * 读取Map
+     *
+     * @param valueType 值类型，null表示按JSON原始类型读取
+     * @return 值为null或不是对象时返回null
+     * @throws IOException
+     */
+    public Map<String, Object> readMap(Class<?> valueType) throws IOException {
+        if (peek() != BEGIN_OBJECT) {
+            skipValue();
+            return null;
+        }
+        Map<String, Object> map = new HashMap<>();
+        beginObject();
+        while (hasNext()) {
+            String name = nextName();
+            map.put(name, valueType == null || valueType == Object.class ? readAny() : readElement(valueType));
+        }
+        endObject();
+        return map;
+    }
+
+    /**
+     * 按类型读取元素
+     *
+     * @param type 类型
+     * @return
+     * @throws IOException
+     */
+    public Object readElement(Class<?> type) throws IOException {
+        if (peek() == NULL) {
+            nextNull();
+            return null;
+        }
+        if (type == null || type == Object.class) {
+            return readAny();
+        }
+        switch (ClassBinding.categoryOf(type)) {
+            case ClassBinding.CATEGORY_PRIMITIVE:
+                int token = peek();
+                if (token == BEGIN_OBJECT || token == BEGIN_ARRAY) {
+                    return type == String.class ? readJson() : readAny();
+                }
+                return JSON.convert(nextString(), type);
+            case ClassBinding.CATEGORY_COLLECTION:
+                return readCollection(type, null);
+            case ClassBinding.CATEGORY_ARRAY:
+                return readArray(type.getComponentType());
+            case ClassBinding.CATEGORY_MAP:
+                return readMap(null);
+            case ClassBinding.CATEGORY_JSON:
+                Object value = readAny();
+                if (value instanceof Map) {
+                    return new JSONObject((Map) value);
+                }
+                return value instanceof List ? new JSONArray((List) value) : null;
+            default:
+                return readObject(type);
+        }
+    }
+
+    /**
+     * 按JSON原始类型读取：对象为Map，数组为List，数字为Integer、Long或Double
+     *
+     * @return
+     * @throws IOException
+     */
+    public Object readAny() throws IOException {
+        switch (peek()) {
+            case BEGIN_OBJECT:
+                return readMap(null);
+            case BEGIN_ARRAY:
+                List<Object> list = new ArrayList<>();
+                beginArray();
+                while (hasNext()) {
+                    list.add(readAny());
+                }
+                endArray();
+                return list;
+            case NUMBER:
+                String number = nextString();
+                try {
+                    return JSON.parseNumber(number);
+                } catch (NumberFormatException e) {
+                    throw syntaxError("Invalid number " + number);
+                }
+            case BOOLEAN:
+                return nextBoolean();
+            case NULL:
+                nextNull();
+                return null;
+            default:
+                return nextString();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(int token) throws IOException {
+        if (peek() != token) {
+            throw syntaxError("Expected " + token + " but was " + peeked);
+        }
+        peeked = 0;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            int[] grown = new int[depth * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = scope;
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = 0;
+        int length = in.read(buffer, 0, buffer.length);
+        if (length <= 0) {
+            return false;
+        }
+        limit = length;
+        return true;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[pos++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    private void readLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+        }
+    }
+
+    private String readNumber(char first) throws IOException {
+        builder.setLength(0);
+        builder.append(first);
+        while (true) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            char c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                builder.append(c);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private String readString() throws IOException {
+        builder.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    builder.append(buffer, start, pos - start - 1);
+                    return builder.toString();
+                }
+                if (c == '\\') {
+                    builder.append(buffer, start, pos - start - 1);
+                    builder.append(readEscape());
+                    start = pos;
+                }
+            }
+            builder.append(buffer, start, pos - start);
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case -1:
+                throw syntaxError("Unterminated escape");
+            default:
+                return (char) c;
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at " + (offset + pos));
+    }
+
+}
@@ -0,0 +1,339 @@
+package androidx.io.core.net;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Array;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 流式JSON写入，对象、集合、Map和数组直接写入Writer、OutputStream或StringBuilder，
+ * 不构建中间JSONObject、JSONArray，字段名称按类缓存转义结果
+ */
+public class JSONWriter implements Closeable, Flushable {
+
+    private Appendable out;
+    private boolean[] first = new boolean[32];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * 构建写入器
+     *
+     * @param out 输出，例如Writer、StringBuilder
+     */
+    public JSONWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * 构建写入器，UTF-8编码
+     *
+     * @param os 输出流
+     */
+    public JSONWriter(OutputStream os) {
+        this(new BufferedWriter(new OutputStreamWriter(os, Charset.forName("UTF-8"))));
+    }
+
+    public JSONWriter beginObject() throws IOException {
+        open('{');
+        return this;
+    }
+
+    public JSONWriter endObject() throws IOException {
+        close('}');
+        return this;
+    }
+
+    public JSONWriter beginArray() throws IOException {
+        open('[');
+        return this;
+    }
+
+    public JSONWriter endArray() throws IOException {
+        close(']');
+        return this;
+    }
+
+    /**
+     * 写入名称
+     *
+     * @param name 名称
+     * @return
+     * @throws IOException
+     */
+    public JSONWriter name(String name) throws IOException {
+        separate();
+        quote(out, name);
+        out.append(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * 写入已转义的名称，例如{@link ClassBinding.FieldBinding#getQuotedName()}
+     *
+     * @param quotedName 带引号和冒号的名称
+     * @return
+     * @throws IOException
+     */
+    public JSONWriter quotedName(String quotedName) throws IOException {
+        separate();
+        out.append(quotedName);
+        afterName = true;
+        return this;
+    }
+
+    public JSONWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        quote(out, value);
+        return this;
+    }
+
+    public JSONWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.append(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * 写入数字，整数值的小数按整数写入，NaN和无穷大写入null
+     *
+     * @param value 数字
+     * @return
+     * @throws IOException
+     */
+    public JSONWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double number = value.doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                return nullValue();
+            }
+            beforeValue();
+            long integer = value.longValue();
+            out.append(number == integer ? Long.toString(integer) : value.toString());
+            return this;
+        }
+        beforeValue();
+        out.append(value.toString());
+        return this;
+    }
+
+    public JSONWriter nullValue() throws IOException {
+        beforeValue();
+        out.append("null");
+        return this;
+    }
+
+    /**
+     * 写入任意值：基础类型、JSONObject、JSONArray、Map、集合、数组、普通类，
+     * Map和普通类中值为null的键不写入
+     *
+     * @param value 值
+     * @return
+     * @throws IOException
+     */
+    public JSONWriter write(Object value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof CharSequence || value instanceof Character) {
+            return value(value.toString());
+        }
+        if (value instanceof Number) {
+            return value((Number) value);
+        }
+        if (value instanceof Boolean) {
+            return value(((Boolean) value).booleanValue());
+        }
+        if (value instanceof JSONObject || value instanceof JSONArray) {
+            beforeValue();
+            out.append(value.toString());
+            return this;
+        }
+        if (value instanceof Map) {
+            beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getValue() != null) {
+                    name(String.valueOf(entry.getKey()));
+                    write(entry.getValue());
+                }
+            }
+            return endObject();
+        }
+        if (value instanceof Collection) {
+            beginArray();
+            for (Object item : (Collection<?>) value) {
+                write(item);
+            }
+            return endArray();
+        }
+        if (value.getClass().isArray()) {
+            beginArray();
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                write(Array.get(value, i));
+            }
+            return endArray();
+        }
+        return writeBean(value);
+    }
+
+    /**
+     * 写入普通类，优先使用编译时生成的编解码器，否则使用缓存的字段和转义名称
+     *
+     * @param bean 对象
+     * @return
+     * @throws IOException
+     */
+    private JSONWriter writeBean(Object bean) throws IOException {
+        ClassBinding binding = ClassBinding.of(bean.getClass());
+        if (binding.getCodec() != null) {
+            binding.getCodec().write(this, bean);
+            return this;
+        }
+        beginObject();
+        for (ClassBinding.FieldBinding field : binding.getProperties()) {
+            Object value;
+            try {
+                value = field.getField().get(bean);
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+                continue;
+            }
+            if (value != null) {
+                quotedName(field.getQuotedName());
+                write(value);
+            }
+        }
+        return endObject();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out instanceof Closeable) {
+            ((Closeable) out).close();
+        }
+    }
+
+    private void open(char c) throws IOException {
+        beforeValue();
+        if (depth == first.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(first, 0, grown, 0, depth);
+            first = grown;
+        }
+        first[depth++] = true;
+        out.append(c);
+    }
+
+    private void close(char c) throws IOException {
+        if (depth == 0) {
+            throw new IOException("Nesting problem");
+        }
+        depth--;
+        out.append(c);
+    }
+
+    private void separate() throws IOException {
+        if (depth > 0) {
+            if (!first[depth - 1]) {
+                out.append(',');
+            }
+            first[depth - 1] = false;
+        }
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        separate();
+    }
+
+    /**
+     * 转义字符串并加引号
+     *
+     * @param value 字符串
+     * @return
+     */
+    public static String quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2);
+        try {
+            quote(builder, value);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return builder.toString();
+    }
+
+    private static void quote(Appendable out, String value) throws IOException {
+        out.append('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape;
+            switch (c) {
+                case '"':
+                    escape = "\\\"";
+                    break;
+                case '\\':
+                    escape = "\\\\";
+                    break;
+                case '/':
+                    escape = "\\/";
+                    break;
+                case '\b':
+                    escape = "\\b";
+                    break;
+                case '\f':
+                    escape = "\\f";
+                    break;
+                case '\n':
+                    escape = "\\n";
+                    break;
+                case '\r':
+                    escape = "\\r";
+                    break;
+                case '\t':
+                    escape = "\\t";
+                    break;
+                default:
+                    if (c > 0x1f && c != '\u2028' && c != '\u2029') {
+                        continue;
+                    }
+                    escape = String.format("\\u%04x", (int) c);
+                    break;
+            }
+            out.append(value, start, i);
+            out.append(escape);
+            start = i + 1;
+        }
+        out.append(value, start, length);
+        out.append('"');
+    }
+
+}
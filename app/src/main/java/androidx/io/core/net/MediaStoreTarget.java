@@ -0,0 +1,112 @@
+package androidx.io.core.net;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * MediaStore下载目标，数据直接写入媒体库文件描述符，不经过缓存文件；
+ * Android Q及以上创建的条目在下载完成前处于待定状态，完成后才对其他应用可见。
+ */
+public class MediaStoreTarget {
+
+    private Context context;
+    private Uri uri;
+    private boolean pending;
+
+    /**
+     * 使用已有的内容Uri，例如上次未完成的条目，续传时从已写入的位置继续
+     *
+     * @param context 上下文
+     * @param uri     内容Uri
+     */
+    public MediaStoreTarget(Context context, Uri uri) {
+        this(context, uri, Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q);
+    }
+
+    private MediaStoreTarget(Context context, Uri uri, boolean pending) {
+        this.context = context;
+        this.uri = uri;
+        this.pending = pending;
+    }
+
+    /**
+     * 创建待定的媒体库条目
+     *
+     * @param context      上下文
+     * @param collection   媒体集合，例如：MediaStore.Video.Media.EXTERNAL_CONTENT_URI
+     * @param displayName  文件名
+     * @param mimeType     类型，例如：video/mp4
+     * @param relativePath 相对路径，例如：Movies/IOCore，Android Q以下忽略，可为null
+     * @return
+     * @throws IOException 创建失败
+     */
+    public static MediaStoreTarget create(Context context, Uri collection, String displayName, String mimeType, String relativePath) throws IOException {
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.MediaColumns.DISPLAY_NAME, displayName);
+        values.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);
+        boolean pending = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+        if (pending) {
+            if (relativePath != null) {
+                values.put(MediaStore.MediaColumns.RELATIVE_PATH, relativePath);
+            }
+            values.put(MediaStore.MediaColumns.IS_PENDING, 1);
+        }
+        Uri uri = context.getContentResolver().insert(collection, values);
+        if (uri == null) {
+            throw new IOException("Insert " + displayName + " into " + collection + " failed");
+        }
+        return new MediaStoreTarget(context, uri, pending);
+    }
+
+    /**
+     * 获取内容Uri，保存后可用于续传
+     *
+     * @return
+     */
+    public Uri getUri() {
+        return uri;
+    }
+
+    /**
+     * 打开可读写的文件描述符
+     *
+     * @return
+     * @throws IOException
+     */
+    public ParcelFileDescriptor open() throws IOException {
+        ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(uri, "rw");
+        if (descriptor == null) {
+            throw new FileNotFoundException(String.valueOf(uri));
+        }
+        return descriptor;
+    }
+
+    /**
+     * 发布条目，结束待定状态
+     */
+    public void publish() {
+        if (!pending) {
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.MediaColumns.IS_PENDING, 0);
+        context.getContentResolver().update(uri, values, null, null);
+    }
+
+    /**
+     * 删除条目，用于放弃下载
+     *
+     * @return 删除数量
+     */
+    public int delete() {
+        return context.getContentResolver().delete(uri, null, null);
+    }
+
+}
@@ -1,46 +1,244 @@
 package androidx.io.core.net;
 
-import android.os.Bundle;
+import android.net.Uri;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 
 import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Messenger extends Handler {
 
     public static final int WHAT_DOWNLOADING = 0x801;
     public static final int WHAT_COMPLETED = 0x802;
     public static final int WHAT_FAILED = 0x803;
+    public static final int WHAT_UPLOADED = 0x804;
 
-    private OnDownloadListener listener;
+    /**
+     * 默认进度间隔时间（毫秒）
+     */
+    public static final long DEFAULT_PROGRESS_INTERVAL = 100;
+
+    private List<OnDownloadListener> listeners = new CopyOnWriteArrayList<>();
+    private List<OnUploadListener> uploadListeners = new CopyOnWriteArrayList<>();
+    private ThroughputEstimator estimator;
+    /**
+     * 进度间隔时间（毫秒）
+     */
+    private long interval = DEFAULT_PROGRESS_INTERVAL;
+    /**
+     * 进度百分比步长
+     */
+    private int step;
+    /**
+     * 待发送的文件大小
+     */
+    private long pendingTotal;
+    /**
+     * 待发送的进度
+     */
+    private long pendingProgress = -1;
+    /**
+     * 是否已安排进度消息
+     */
+    private boolean scheduled;
+    /**
+     * 上次发送进度的时间
+     */
+    private long dispatchTime;
+    /**
+     * 上次发送的百分比
+     */
+    private int dispatchPercent = -1;
 
     public Messenger() {
+        super(Looper.getMainLooper());
     }
 
     public void setOnDownloadListener(OnDownloadListener listener) {
-        this.listener = listener;
+        listeners.clear();
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * 添加下载监听，相同下载合并后共享进度和结果
+     *
+     * @param listener 下载监听
+     */
+    public void addOnDownloadListener(OnDownloadListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * 移除下载监听
+     *
+     * @param listener 下载监听
+     */
+    public void removeOnDownloadListener(OnDownloadListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 获取下载监听
+     *
+     * @return
+     */
+    public List<OnDownloadListener> getOnDownloadListeners() {
+        return listeners;
+    }
+
+    /**
+     * 设置上传监听，上传进度同样按间隔和步长合并发送
+     *
+     * @param listener 上传监听
+     */
+    public void setOnUploadListener(OnUploadListener listener) {
+        uploadListeners.clear();
+        if (listener != null) {
+            uploadListeners.add(listener);
+        }
     }
 
+    /**
+     * 设置吞吐量估算，发送进度时同时回调{@link OnDownloadSpeedListener}
+     *
+     * @param estimator 吞吐量估算
+     */
+    public void setEstimator(ThroughputEstimator estimator) {
+        this.estimator = estimator;
+    }
+
+    /**
+     * 设置进度间隔时间，间隔内的进度合并为最新值发送
+     *
+     * @param interval 间隔时间（毫秒），0表示不限制
+     */
+    public synchronized void setProgressInterval(long interval) {
+        this.interval = Math.max(0, interval);
+    }
+
+    /**
+     * 设置进度百分比步长，百分比变化小于步长时不发送
+     *
+     * @param step 步长（1-100），0表示不限制
+     */
+    public synchronized void setProgressStep(int step) {
+        this.step = Math.max(0, Math.min(100, step));
+    }
+
+    /**
+     * 计算百分比
+     *
+     * @param total    文件大小
+     * @param progress 进度
+     * @return
+     */
+    private static int percent(long total, long progress) {
+        return total <= 0 ? 0 : (int) (progress * 100 / total);
+    }
+
+    /**
+     * 发送下载进度，只保留最新进度，按时间间隔和百分比步长合并发送，
+     * 完成进度立即发送。
+     *
+     * @param total    文件大小
+     * @param progress 进度
+     */
     public void send(long total, long progress) {
-        Message msg = obtainMessage();
-        msg.what = WHAT_DOWNLOADING;
-        Bundle bundle = new Bundle();
-        bundle.putLong("total", total);
-        bundle.putLong("progress", progress);
-        msg.setData(bundle);
-        sendMessage(msg);
+        synchronized (this) {
+            if (progress <= pendingProgress && total == pendingTotal) {
+                return;
+            }
+            pendingTotal = total;
+            pendingProgress = progress;
+            boolean finished = total > 0 && progress >= total;
+            if (!finished) {
+                if (scheduled) {
+                    return;
+                }
+                if (step > 0 && total > 0 && dispatchPercent >= 0 && percent(total, progress) - dispatchPercent < step) {
+                    return;
+                }
+            }
+            long delay = finished ? 0 : Math.max(0, dispatchTime + interval - SystemClock.uptimeMillis());
+            if (scheduled) {
+                removeMessages(WHAT_DOWNLOADING);
+            }
+            scheduled = true;
+            sendEmptyMessageDelayed(WHAT_DOWNLOADING, delay);
+        }
+    }
+
+    /**
+     * 立即发送未发送的进度，保证完成、失败消息前进度已送达
+     */
+    private void flush() {
+        synchronized (this) {
+            if (scheduled) {
+                removeMessages(WHAT_DOWNLOADING);
+                sendEmptyMessage(WHAT_DOWNLOADING);
+            }
+        }
+    }
+
+    /**
+     * 重置进度状态，下载开始或重试时调用，之后的进度即使小于之前的进度也会发送，
+     * 移除未发送的进度，避免重试后送达过期进度
+     */
+    public synchronized void reset() {
+        removeMessages(WHAT_DOWNLOADING);
+        scheduled = false;
+        pendingTotal = 0;
+        pendingProgress = -1;
+        dispatchTime = 0;
+        dispatchPercent = -1;
     }
 
     public void send(File file) {
+        flush();
         Message msg = obtainMessage();
         msg.what = WHAT_COMPLETED;
         msg.obj = file;
         sendMessage(msg);
     }
 
+    /**
+     * 发送上传完成
+     *
+     * @param response 服务器响应内容
+     */
+    public void send(String response) {
+        flush();
+        Message msg = obtainMessage();
+        msg.what = WHAT_UPLOADED;
+        msg.obj = response;
+        sendMessage(msg);
+    }
+
+    /**
+     * 发送MediaStore下载完成，实现{@link OnMediaStoreListener}的监听收到Uri，其他监听收到的文件为null
+     *
+     * @param uri 内容Uri
+     */
+    public void send(Uri uri) {
+        flush();
+        Message msg = obtainMessage();
+        msg.what = WHAT_COMPLETED;
+        msg.obj = uri;
+        sendMessage(msg);
+    }
+
     public void send(Exception e) {
+        flush();
         Message msg = obtainMessage();
         msg.what = WHAT_FAILED;
         msg.obj = e;
@@ -50,26 +248,54 @@ public class Messenger extends Handler {
     @Override
     public void handleMessage(@NonNull Message msg) {
         super.handleMessage(msg);
-        if (listener == null) {
-            return;
-        }
-        Bundle data = msg.getData();
         Object obj = msg.obj;
         switch (msg.what) {
             case WHAT_DOWNLOADING:
-                if (listener != null) {
-                    listener.onDownloading(data.getLong("total"), data.getLong("progress"));
+                long total;
+                long progress;
+                synchronized (this) {
+                    scheduled = false;
+                    total = pendingTotal;
+                    progress = pendingProgress;
+                    dispatchTime = SystemClock.uptimeMillis();
+                    dispatchPercent = percent(total, progress);
+                }
+                ThroughputEstimator estimator = this.estimator;
+                for (OnDownloadListener listener : listeners) {
+                    listener.onDownloading(total, progress);
+                    if (estimator != null && listener instanceof OnDownloadSpeedListener) {
+                        long eta = total > 0 ? estimator.getEta(total - progress) : -1;
+                        ((OnDownloadSpeedListener) listener).onDownloadSpeed(estimator.getSpeed(), estimator.getInstantSpeed(), estimator.getAverageSpeed(), eta);
+                    }
+                }
+                for (OnUploadListener listener : uploadListeners) {
+                    listener.onUploading(total, progress);
                 }
                 break;
             case WHAT_COMPLETED:
-                if (listener != null) {
-                    listener.onDownloadCompleted((File) obj);
+                reset();
+                for (OnDownloadListener listener : listeners) {
+                    if (obj instanceof Uri && listener instanceof OnMediaStoreListener) {
+                        ((OnMediaStoreListener) listener).onMediaStoreCompleted((Uri) obj);
+                    } else {
+                        listener.onDownloadCompleted(obj instanceof File ? (File) obj : null);
+                    }
                 }
                 break;
             case WHAT_FAILED:
-                if (listener != null) {
+                reset();
+                for (OnDownloadListener listener : listeners) {
                     listener.onDownloadFailed((Exception) obj);
                 }
+                for (OnUploadListener listener : uploadListeners) {
+                    listener.onUploadFailed((Exception) obj);
+                }
+                break;
+            case WHAT_UPLOADED:
+                reset();
+                for (OnUploadListener listener : uploadListeners) {
+                    listener.onUploadCompleted((String) obj);
+                }
                 break;
         }
     }
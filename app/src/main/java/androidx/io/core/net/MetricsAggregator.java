@@ -0,0 +1,169 @@
+package androidx.io.core.net;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * 内存下载指标汇总，保留最近的下载指标并计算百分位
+ */
+public class MetricsAggregator implements OnDownloadMetricsListener {
+
+    public static final int CONNECT = 0;
+    public static final int TLS = 1;
+    public static final int FIRST_BYTE = 2;
+    public static final int DURATION = 3;
+    public static final int BYTES_PER_SECOND = 4;
+    public static final int RETRIES = 5;
+
+    /**
+     * 默认保留数量
+     */
+    public static final int DEFAULT_CAPACITY = 500;
+
+    private static volatile MetricsAggregator aggregator;
+
+    private int capacity;
+    private LinkedList<DownloadMetrics> metrics;
+
+    public MetricsAggregator() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 构建指标汇总
+     *
+     * @param capacity 保留数量
+     */
+    public MetricsAggregator(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.metrics = new LinkedList<>();
+    }
+
+    /**
+     * 获取默认指标汇总
+     *
+     * @return
+     */
+    public static MetricsAggregator getDefault() {
+        if (aggregator == null) {
+            synchronized (MetricsAggregator.class) {
+                if (aggregator == null) {
+                    aggregator = new MetricsAggregator();
+                }
+            }
+        }
+        return aggregator;
+    }
+
+    @Override
+    public synchronized void onDownloadMetrics(DownloadMetrics item) {
+        metrics.addLast(item);
+        while (metrics.size() > capacity) {
+            metrics.removeFirst();
+        }
+    }
+
+    /**
+     * 获取保留的下载指标
+     *
+     * @return
+     */
+    public synchronized List<DownloadMetrics> getMetrics() {
+        return new ArrayList<>(metrics);
+    }
+
+    /**
+     * 清空
+     */
+    public synchronized void clear() {
+        metrics.clear();
+    }
+
+    /**
+     * 获取数量
+     *
+     * @param status 结果，例如{@link DownloadMetrics#STATUS_COMPLETED}
+     * @return
+     */
+    public synchronized int getCount(int status) {
+        int count = 0;
+        for (DownloadMetrics item : metrics) {
+            if (item.getStatus() == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 获取百分位
+     *
+     * @param type       指标：{@link #CONNECT}、{@link #TLS}、{@link #FIRST_BYTE}、{@link #DURATION}、
+     *                   {@link #BYTES_PER_SECOND}、{@link #RETRIES}
+     * @param percentile 百分位（0-100），例如50、95、99
+     * @return 没有数据返回-1
+     */
+    public synchronized long getPercentile(int type, double percentile) {
+        List<Long> values = new ArrayList<>();
+        for (DownloadMetrics item : metrics) {
+            long value = valueOf(item, type);
+            if (value >= 0) {
+                values.add(value);
+            }
+        }
+        if (values.size() == 0) {
+            return -1;
+        }
+        Collections.sort(values);
+        int rank = (int) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * values.size());
+        return values.get(Math.max(0, rank - 1));
+    }
+
+    /**
+     * 获取汇总，包含P50、P95、P99
+     *
+     * @return
+     */
+    public synchronized String getSummary() {
+        String[] names = {"connect", "tls", "ttfb", "duration", "bytes/s", "retries"};
+        StringBuilder builder = new StringBuilder();
+        builder.append("count=").append(metrics.size())
+                .append(", completed=").append(getCount(DownloadMetrics.STATUS_COMPLETED))
+                .append(", failed=").append(getCount(DownloadMetrics.STATUS_FAILED));
+        for (int type = CONNECT; type <= RETRIES; type++) {
+            builder.append("\n").append(names[type])
+                    .append(": p50=").append(getPercentile(type, 50))
+                    .append(", p95=").append(getPercentile(type, 95))
+                    .append(", p99=").append(getPercentile(type, 99));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 获取指标值
+     *
+     * @param item 下载指标
+     * @param type 指标
+     * @return
+     */
+    private static long valueOf(DownloadMetrics item, int type) {
+        switch (type) {
+            case CONNECT:
+                return item.getConnectTime();
+            case TLS:
+                return item.getTlsTime();
+            case FIRST_BYTE:
+                return item.getFirstByteTime();
+            case DURATION:
+                return item.getDuration();
+            case BYTES_PER_SECOND:
+                return item.getBytesPerSecond();
+            case RETRIES:
+                return item.getRetries();
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,15 @@
+package androidx.io.core.net;
+
+/**
+ * 下载指标监听，在下载线程回调
+ */
+public interface OnDownloadMetricsListener {
+
+    /**
+     * 下载结束（完成、失败、暂停、取消）
+     *
+     * @param metrics 下载指标
+     */
+    void onDownloadMetrics(DownloadMetrics metrics);
+
+}
@@ -0,0 +1,18 @@
+package androidx.io.core.net;
+
+/**
+ * 下载速度监听，与{@link OnDownloadListener}一起实现，随下载进度回调
+ */
+public interface OnDownloadSpeedListener {
+
+    /**
+     * 下载速度
+     *
+     * @param speed   平滑速度（字节/秒）
+     * @param instant 瞬时速度（字节/秒）
+     * @param average 平均速度（字节/秒）
+     * @param eta     剩余时间（毫秒），未知为-1
+     */
+    void onDownloadSpeed(long speed, long instant, long average, long eta);
+
+}
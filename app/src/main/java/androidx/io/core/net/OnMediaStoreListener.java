@@ -0,0 +1,17 @@
+package androidx.io.core.net;
+
+import android.net.Uri;
+
+/**
+ * MediaStore下载完成监听，与{@link OnDownloadListener}一起实现
+ */
+public interface OnMediaStoreListener {
+
+    /**
+     * 下载完成并已发布到媒体库
+     *
+     * @param uri 内容Uri
+     */
+    void onMediaStoreCompleted(Uri uri);
+
+}
@@ -0,0 +1,28 @@
+package androidx.io.core.net;
+
+import java.util.List;
+
+/**
+ * 批量同步监听，在主线程回调
+ */
+public interface OnSyncListener {
+
+    /**
+     * 同步进度
+     *
+     * @param total     需要下载的总大小
+     * @param progress  已下载大小
+     * @param completed 已完成的文件数
+     * @param count     需要下载的文件数
+     */
+    void onSyncProgress(long total, long progress, int completed, int count);
+
+    /**
+     * 同步结束
+     *
+     * @param updated 已更新的条目
+     * @param failed  失败的条目
+     */
+    void onSyncCompleted(List<SyncEntry> updated, List<SyncEntry> failed);
+
+}
@@ -0,0 +1,30 @@
+package androidx.io.core.net;
+
+/**
+ * 文件上传监听
+ */
+public interface OnUploadListener {
+
+    /**
+     * 文件上传进度
+     *
+     * @param total    文件大小
+     * @param progress 已上传的进度
+     */
+    void onUploading(long total, long progress);
+
+    /**
+     * 文件上传完成
+     *
+     * @param response 服务器响应内容
+     */
+    void onUploadCompleted(String response);
+
+    /**
+     * 上传失败
+     *
+     * @param e
+     */
+    void onUploadFailed(Exception e);
+
+}
@@ -0,0 +1,26 @@
+package androidx.io.core.net;
+
+import java.io.File;
+
+/**
+ * 压缩包条目解压监听，在下载线程回调
+ */
+public interface OnZipEntryListener {
+
+    /**
+     * 条目解压进度
+     *
+     * @param name     条目名称
+     * @param size     条目大小，未知为-1
+     * @param progress 已解压大小
+     */
+    void onZipEntryProgress(String name, long size, long progress);
+
+    /**
+     * 条目解压完成
+     *
+     * @param file 解压的文件
+     */
+    void onZipEntryCompleted(File file);
+
+}
@@ -0,0 +1,108 @@
+package androidx.io.core.net;
+
+import java.io.InterruptedIOException;
+
+/**
+ * 令牌桶限速器，每秒补充指定字节数的令牌，令牌不足时等待，可在下载过程中修改速度
+ */
+public class RateLimiter {
+
+    /**
+     * 不限速
+     */
+    public static final long UNLIMITED = 0;
+
+    private static final RateLimiter global = new RateLimiter(UNLIMITED);
+
+    private long bytesPerSecond;
+    private double tokens;
+    private long time;
+
+    /**
+     * 构建限速器
+     *
+     * @param bytesPerSecond 每秒字节数，{@link #UNLIMITED}表示不限速
+     */
+    public RateLimiter(long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(UNLIMITED, bytesPerSecond);
+        this.tokens = this.bytesPerSecond;
+        this.time = System.nanoTime();
+    }
+
+    /**
+     * 获取全局限速器，所有下载共用
+     *
+     * @return
+     */
+    public static RateLimiter getGlobal() {
+        return global;
+    }
+
+    /**
+     * 设置每秒字节数，正在等待的下载立即按新速度计算
+     *
+     * @param bytesPerSecond 每秒字节数，{@link #UNLIMITED}表示不限速
+     */
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        refill();
+        this.bytesPerSecond = Math.max(UNLIMITED, bytesPerSecond);
+        this.tokens = Math.min(tokens, this.bytesPerSecond);
+        notifyAll();
+    }
+
+    /**
+     * 获取每秒字节数
+     *
+     * @return
+     */
+    public synchronized long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * 是否限速
+     *
+     * @return
+     */
+    public synchronized boolean isLimited() {
+        return bytesPerSecond > UNLIMITED;
+    }
+
+    /**
+     * 获取令牌，不足时等待，允许单次获取超过桶容量，超出部分由后续等待偿还
+     *
+     * @param bytes 字节数
+     * @throws InterruptedIOException 等待被中断
+     */
+    public synchronized void acquire(int bytes) throws InterruptedIOException {
+        if (bytesPerSecond <= UNLIMITED) {
+            return;
+        }
+        refill();
+        tokens -= bytes;
+        while (tokens < 0 && bytesPerSecond > UNLIMITED) {
+            long millis = (long) Math.ceil(-tokens * 1000 / bytesPerSecond);
+            try {
+                wait(Math.max(1, millis));
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Rate limiter interrupted");
+            }
+            refill();
+        }
+        if (bytesPerSecond <= UNLIMITED) {
+            tokens = 0;
+        }
+    }
+
+    /**
+     * 按时间补充令牌，最多一秒的容量
+     */
+    private void refill() {
+        long now = System.nanoTime();
+        if (bytesPerSecond > UNLIMITED) {
+            tokens = Math.min(bytesPerSecond, tokens + (now - time) / 1e9 * bytesPerSecond);
+        }
+        time = now;
+    }
+
+}
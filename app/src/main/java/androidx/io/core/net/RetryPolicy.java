@@ -0,0 +1,123 @@
+package androidx.io.core.net;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.ProtocolException;
+import java.util.Random;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+/**
+ * 下载重试策略，指数退避并加入随机抖动
+ */
+public class RetryPolicy {
+
+    /**
+     * 默认最大重试次数
+     */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    /**
+     * 默认初始等待时间（毫秒）
+     */
+    public static final long DEFAULT_BASE_DELAY = 1000;
+    /**
+     * 默认最大等待时间（毫秒）
+     */
+    public static final long DEFAULT_MAX_DELAY = 30 * 1000;
+
+    private int maxRetries;
+    private long baseDelay;
+    private long maxDelay;
+    private Random random;
+
+    public RetryPolicy() {
+        this(DEFAULT_MAX_RETRIES, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * 构建重试策略
+     *
+     * @param maxRetries 最大重试次数
+     * @param baseDelay  初始等待时间（毫秒）
+     * @param maxDelay   最大等待时间（毫秒）
+     */
+    public RetryPolicy(int maxRetries, long baseDelay, long maxDelay) {
+        this.maxRetries = maxRetries;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.random = new Random();
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public void setBaseDelay(long baseDelay) {
+        this.baseDelay = baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * 是否重试
+     *
+     * @param attempt 第几次重试，从1开始
+     * @param e       异常
+     * @return
+     */
+    public boolean isRetryable(int attempt, IOException e) {
+        if (attempt > maxRetries) {
+            return false;
+        }
+        if (e instanceof HttpException) {
+            return isRetryable(((HttpException) e).getCode());
+        }
+        return !(e instanceof MalformedURLException
+                || e instanceof ProtocolException
+                || e instanceof FileNotFoundException
+                || e instanceof SSLPeerUnverifiedException
+                || e instanceof StorageException);
+    }
+
+    /**
+     * 状态码是否可以重试：请求超时、请求过多、服务器错误
+     *
+     * @param code 状态码
+     * @return
+     */
+    public boolean isRetryable(int code) {
+        return code == 408 || code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * 获取重试等待时间，指数增长，在[0,上限]之间随机取值
+     *
+     * @param attempt 第几次重试，从1开始
+     * @return 等待时间（毫秒）
+     */
+    public long getDelay(int attempt) {
+        long delay = baseDelay << Math.min(30, Math.max(0, attempt - 1));
+        if (delay <= 0 || delay > maxDelay) {
+            delay = maxDelay;
+        }
+        synchronized (random) {
+            return (long) (random.nextDouble() * delay);
+        }
+    }
+
+}
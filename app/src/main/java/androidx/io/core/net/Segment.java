@@ -0,0 +1,187 @@
+package androidx.io.core.net;
+
+/**
+ * 文件下载分段
+ */
+public class Segment {
+
+    /**
+     * 分段开始位置
+     */
+    private final long start;
+    /**
+     * 当前写入位置，已预留但可能尚未写入
+     */
+    private long position;
+    /**
+     * 已写入文件的位置，保存分段记录时使用
+     */
+    private long committed;
+    /**
+     * 分段结束位置（包含）
+     */
+    private long end;
+    /**
+     * 是否已被下载线程领取
+     */
+    private boolean claimed;
+
+    /**
+     * 构建分段
+     *
+     * @param start 开始位置
+     * @param end   结束位置（包含）
+     */
+    public Segment(long start, long end) {
+        this(start, start, end);
+    }
+
+    /**
+     * 构建分段
+     *
+     * @param start    开始位置
+     * @param position 已下载位置
+     * @param end      结束位置（包含）
+     */
+    public Segment(long start, long position, long end) {
+        this.start = start;
+        this.position = position;
+        this.committed = position;
+        this.end = end;
+    }
+
+    /**
+     * 获取开始位置
+     *
+     * @return
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * 获取当前写入位置
+     *
+     * @return
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    /**
+     * 获取已写入文件的位置
+     *
+     * @return
+     */
+    public synchronized long getCommitted() {
+        return committed;
+    }
+
+    /**
+     * 获取结束位置（包含）
+     *
+     * @return
+     */
+    public synchronized long getEnd() {
+        return end;
+    }
+
+    /**
+     * 获取剩余字节数
+     *
+     * @return
+     */
+    public synchronized long getRemaining() {
+        return end - position + 1;
+    }
+
+    /**
+     * 是否下载完成
+     *
+     * @return
+     */
+    public synchronized boolean isFinished() {
+        return position > end;
+    }
+
+    /**
+     * 已预留的数据是否全部写入文件
+     *
+     * @return
+     */
+    public synchronized boolean isCommitted() {
+        return committed > end;
+    }
+
+    /**
+     * 是否已被领取
+     *
+     * @return
+     */
+    public synchronized boolean isClaimed() {
+        return claimed;
+    }
+
+    /**
+     * 领取分段
+     */
+    public synchronized void claim() {
+        this.claimed = true;
+    }
+
+    /**
+     * 释放分段，下载中断后可被其他线程重新领取，未写入的预留回退
+     */
+    public synchronized void release() {
+        this.claimed = false;
+        this.position = committed;
+    }
+
+    /**
+     * 预留写入长度，只能由领取分段的线程调用，写入成功后调用{@link #commit(int)}
+     *
+     * @param length 读取长度
+     * @return 允许写入的长度，0表示分段已完成
+     */
+    public synchronized int reserve(int length) {
+        long remaining = end - position + 1;
+        if (remaining <= 0) {
+            return 0;
+        }
+        int size = (int) Math.min(length, remaining);
+        position += size;
+        return size;
+    }
+
+    /**
+     * 确认预留的数据已写入文件
+     *
+     * @param length 写入长度
+     */
+    public synchronized void commit(int length) {
+        committed = Math.min(position, committed + length);
+    }
+
+    /**
+     * 拆分剩余部分的后半段，由空闲线程接管
+     *
+     * @param minSize 最小拆分大小
+     * @return 新分段，剩余不足时返回null
+     */
+    public synchronized Segment split(long minSize) {
+        long remaining = end - position + 1;
+        if (remaining < minSize * 2) {
+            return null;
+        }
+        long middle = position + remaining / 2;
+        Segment segment = new Segment(middle, end);
+        end = middle - 1;
+        return segment;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return start + "," + committed + "," + end;
+    }
+
+}
@@ -0,0 +1,19 @@
+package androidx.io.core.net;
+
+/**
+ * 分段下载指令
+ */
+public class SegmentCommand implements Runnable {
+
+    private SegmentGroup group;
+
+    public SegmentCommand(SegmentGroup group) {
+        this.group = group;
+    }
+
+    @Override
+    public void run() {
+        group.work();
+    }
+
+}
@@ -0,0 +1,436 @@
+package androidx.io.core.net;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分段下载组，多个连接并行下载同一文件的不同区间，
+ * 先完成的连接会接管慢速分段的剩余部分。
+ */
+public class SegmentGroup {
+
+    public String TAG = SegmentGroup.class.getSimpleName();
+
+    /**
+     * 最小拆分大小
+     */
+    public static final long MIN_SPLIT_SIZE = 512 * 1024;
+    /**
+     * 增加连接后等待的吞吐量样本数量
+     */
+    public static final int GROW_SAMPLES = 2;
+    /**
+     * 下载中保存分段记录的间隔（毫秒）
+     */
+    public static final long SAVE_INTERVAL = 1000;
+
+    private Command command;
+    private File file;
+    private File stateFile;
+    private long total;
+    private List<Segment> segments;
+    private AtomicLong downloaded;
+    private int workers;
+    private boolean closed;
+    private IOException error;
+    private ExecutorService service;
+    private int launched;
+    private int growSamples;
+    private long growSpeed;
+    private boolean saturated;
+    private long savedTime;
+
+    /**
+     * 构建分段下载组
+     *
+     * @param command 下载命令
+     * @param file    临时文件
+     * @param total   文件大小
+     */
+    public SegmentGroup(Command command, File file, long total) {
+        this.command = command;
+        this.file = file;
+        this.total = total;
+        this.stateFile = new File(file.getParentFile(), file.getName() + ".seg");
+        this.segments = new ArrayList<>();
+        this.downloaded = new AtomicLong();
+    }
+
+    /**
+     * 获取临时文件
+     *
+     * @return
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 获取文件大小
+     *
+     * @return
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * 准备分段，存在未完成的分段记录时继续下载
+     *
+     * @param count    分段数量
+     * @param override 是否覆盖下载
+     * @throws IOException
+     */
+    public void prepare(int count, boolean override) throws IOException {
+        segments.clear();
+        if (!override && file.exists() && file.length() == total && stateFile.exists()) {
+            load();
+        }
+        if (segments.size() == 0) {
+            RandomAccessFile access = new RandomAccessFile(file, "rw");
+            try {
+                Command.preallocate(access, file, total);
+            } finally {
+                access.close();
+            }
+            long size = total / count;
+            for (int i = 0; i < count; i++) {
+                long start = i * size;
+                long end = i == count - 1 ? total - 1 : start + size - 1;
+                segments.add(new Segment(start, end));
+            }
+        }
+        long length = 0;
+        for (Segment segment : segments) {
+            length += segment.getPosition() - segment.getStart();
+        }
+        downloaded.set(length);
+        if (command.getMetrics() != null) {
+            command.getMetrics().onResume(length);
+        }
+        Log.i(TAG, "segments: " + segments.size() + ", downloaded: " + length);
+    }
+
+    /**
+     * 读取分段记录
+     */
+    private void load() {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(stateFile));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(",");
+                if (values.length == 3) {
+                    segments.add(new Segment(Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2])));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+            segments.clear();
+        } finally {
+            try {
+                if (reader != null) {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 保存分段记录，只记录已写入文件的位置，用于暂停或进程结束后继续下载；
+     * 先写临时文件再替换，避免中断时记录不完整
+     */
+    private synchronized void save() {
+        savedTime = SystemClock.uptimeMillis();
+        File temp = new File(stateFile.getParentFile(), stateFile.getName() + ".tmp");
+        FileWriter writer = null;
+        try {
+            writer = new FileWriter(temp);
+            for (Segment segment : segments) {
+                if (!segment.isCommitted()) {
+                    writer.write(segment.toString() + "\n");
+                }
+            }
+            writer.close();
+            writer = null;
+            if (!temp.renameTo(stateFile)) {
+                stateFile.delete();
+                temp.renameTo(stateFile);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 距上次保存超过间隔时保存分段记录
+     */
+    private void saveIfDue() {
+        synchronized (this) {
+            if (closed || SystemClock.uptimeMillis() - savedTime < SAVE_INTERVAL) {
+                return;
+            }
+        }
+        save();
+    }
+
+    /**
+     * 执行分段下载，当前线程参与下载并等待全部分段结束
+     *
+     * @param service 下载服务
+     * @param count   连接数量
+     */
+    public void execute(ExecutorService service, int count) {
+        synchronized (this) {
+            this.service = service;
+            this.launched = count;
+            this.savedTime = SystemClock.uptimeMillis();
+        }
+        if (service != null) {
+            for (int i = 1; i < count; i++) {
+                service.execute(new SegmentCommand(this));
+            }
+        }
+        work();
+        synchronized (this) {
+            while (workers > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                    break;
+                }
+            }
+            closed = true;
+        }
+        if (isCompleted()) {
+            stateFile.delete();
+        } else {
+            save();
+        }
+    }
+
+    /**
+     * 下载线程工作，领取分段直到没有可下载的区间
+     */
+    public void work() {
+        synchronized (this) {
+            workers++;
+        }
+        try {
+            Segment segment;
+            while ((segment = next()) != null) {
+                try {
+                    download(segment);
+                } finally {
+                    if (!segment.isCommitted()) {
+                        segment.release();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            synchronized (this) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        } finally {
+            synchronized (this) {
+                workers--;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 领取下一个分段，没有未领取的分段时拆分剩余最多的分段
+     *
+     * @return 分段
+     */
+    private synchronized Segment next() {
+        if (isStopped()) {
+            return null;
+        }
+        Segment largest = null;
+        for (Segment segment : segments) {
+            if (segment.isFinished()) {
+                continue;
+            }
+            if (!segment.isClaimed()) {
+                segment.claim();
+                return segment;
+            }
+            if (largest == null || segment.getRemaining() > largest.getRemaining()) {
+                largest = segment;
+            }
+        }
+        if (largest == null) {
+            return null;
+        }
+        Segment segment = largest.split(MIN_SPLIT_SIZE);
+        if (segment != null) {
+            Log.i(TAG, "split: " + largest + " -> " + segment);
+            segment.claim();
+            segments.add(segment);
+        }
+        return segment;
+    }
+
+    /**
+     * 下载分段
+     *
+     * @param segment 分段
+     * @throws IOException
+     */
+    private void download(Segment segment) throws IOException {
+        HttpURLConnection connection = command.openConnection(segment.getPosition(), segment.getEnd());
+        InputStream is = null;
+        RandomAccessFile access = null;
+        ByteBuffer buffer = null;
+        try {
+            int code = command.connect(connection);
+            if (code != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException("Segment response code " + code);
+            }
+            is = connection.getInputStream();
+            access = new RandomAccessFile(file, "rw");
+            ReadableByteChannel channel = Channels.newChannel(is);
+            FileChannel fileChannel = access.getChannel();
+            buffer = BufferPool.acquire(command.getBufferSize());
+            while (!segment.isFinished() && !isStopped()) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), segment.getRemaining()));
+                if (Command.fill(channel, buffer) == -1) {
+                    break;
+                }
+                command.throttle(buffer.position());
+                long offset = segment.getPosition();
+                int size = segment.reserve(buffer.position());
+                if (size <= 0) {
+                    break;
+                }
+                buffer.flip();
+                buffer.limit(size);
+                while (buffer.hasRemaining()) {
+                    offset += fileChannel.write(buffer, offset);
+                }
+                //写入成功后才推进保存的位置，写入失败时续传不会跳过未写入的区间
+                segment.commit(size);
+                saveIfDue();
+                if (command.getMetrics() != null) {
+                    command.getMetrics().onBytes(size);
+                }
+                command.getMessenger().send(total, downloaded.addAndGet(size));
+                buffer = command.adapt(buffer);
+                grow();
+            }
+            if (!segment.isFinished() && !isStopped()) {
+                throw new IOException("Segment stream ended at " + segment.getPosition());
+            }
+        } finally {
+            try {
+                if (is != null) {
+                    is.close();
+                }
+                if (access != null) {
+                    access.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            BufferPool.release(buffer);
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * 按吞吐量增加连接，上次增加连接后吞吐量增长不足10%时认为带宽已饱和，不再增加
+     */
+    private void grow() {
+        ThroughputEstimator estimator = command.getEstimator();
+        ExecutorService service;
+        int count;
+        synchronized (this) {
+            service = this.service;
+            if (service == null || saturated || !command.isAdaptive() || launched >= command.getMaxSegments() || isStopped()) {
+                return;
+            }
+            int samples = estimator.getSamples();
+            if (samples < growSamples + GROW_SAMPLES) {
+                return;
+            }
+            long speed = estimator.getSpeed();
+            if (growSpeed > 0 && speed < growSpeed * 11 / 10) {
+                saturated = true;
+                return;
+            }
+            growSpeed = speed;
+            growSamples = samples;
+            count = ++launched;
+        }
+        Log.i(TAG, "grow: " + count + ", speed: " + estimator.getSpeed());
+        service.execute(new SegmentCommand(this));
+    }
+
+    /**
+     * 是否停止下载：暂停、取消、出错或已结束
+     *
+     * @return
+     */
+    private synchronized boolean isStopped() {
+        return closed || error != null || command.isPause() || command.isCancel();
+    }
+
+    /**
+     * 获取下载异常
+     *
+     * @return
+     */
+    public synchronized IOException getError() {
+        return error;
+    }
+
+    /**
+     * 是否全部分段下载完成
+     *
+     * @return
+     */
+    public synchronized boolean isCompleted() {
+        for (Segment segment : segments) {
+            if (!segment.isFinished()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
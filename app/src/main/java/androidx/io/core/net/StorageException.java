@@ -0,0 +1,37 @@
+package androidx.io.core.net;
+
+import java.io.IOException;
+
+/**
+ * 存储空间不足异常
+ */
+public class StorageException extends IOException {
+
+    private long required;
+    private long available;
+
+    public StorageException(long required, long available) {
+        super("Insufficient storage space, required " + required + " bytes, available " + available + " bytes");
+        this.required = required;
+        this.available = available;
+    }
+
+    /**
+     * 获取需要的空间
+     *
+     * @return 字节
+     */
+    public long getRequired() {
+        return required;
+    }
+
+    /**
+     * 获取可用空间
+     *
+     * @return 字节
+     */
+    public long getAvailable() {
+        return available;
+    }
+
+}
@@ -0,0 +1,87 @@
+package androidx.io.core.net;
+
+/**
+ * 同步清单条目
+ */
+public class SyncEntry {
+
+    /**
+     * 相对路径
+     */
+    private String path;
+    /**
+     * 资源链接
+     */
+    private String url;
+    /**
+     * 文件大小
+     */
+    private long size;
+    /**
+     * 摘要算法，默认SHA-256
+     */
+    private String algorithm = DigestVerifier.SHA_256;
+    /**
+     * 摘要，十六进制或Base64
+     */
+    private String digest;
+
+    public SyncEntry() {
+    }
+
+    /**
+     * 构建同步条目
+     *
+     * @param path   相对路径
+     * @param url    资源链接
+     * @param size   文件大小
+     * @param digest SHA-256摘要
+     */
+    public SyncEntry(String path, String url, long size, String digest) {
+        this.path = path;
+        this.url = url;
+        this.size = size;
+        this.digest = digest;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+}
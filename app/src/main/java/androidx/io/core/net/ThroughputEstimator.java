@@ -0,0 +1,135 @@
+package androidx.io.core.net;
+
+/**
+ * 吞吐量估算，按时间窗口统计瞬时速度，指数加权移动平均平滑速度，用于剩余时间估算和自适应调整。
+ * 每次读取数据时调用{@link #onBytes(long)}，只做累加，窗口结束时计算一次。
+ */
+public class ThroughputEstimator {
+
+    /**
+     * 默认窗口时间（毫秒）
+     */
+    public static final long DEFAULT_WINDOW = 500;
+    /**
+     * 默认平滑系数，越大越接近瞬时速度
+     */
+    public static final double DEFAULT_ALPHA = 0.3;
+
+    private long window;
+    private double alpha;
+    private long startTime = -1;
+    private long windowStart;
+    private long windowBytes;
+    private long totalBytes;
+    private long instant;
+    private double smoothed;
+    private int samples;
+
+    public ThroughputEstimator() {
+        this(DEFAULT_WINDOW, DEFAULT_ALPHA);
+    }
+
+    /**
+     * 构建吞吐量估算
+     *
+     * @param window 窗口时间（毫秒）
+     * @param alpha  平滑系数（0-1）
+     */
+    public ThroughputEstimator(long window, double alpha) {
+        this.window = Math.max(1, window);
+        this.alpha = Math.max(0.01, Math.min(1, alpha));
+    }
+
+    /**
+     * 重置
+     */
+    public synchronized void reset() {
+        startTime = -1;
+        windowStart = 0;
+        windowBytes = 0;
+        totalBytes = 0;
+        instant = 0;
+        smoothed = 0;
+        samples = 0;
+    }
+
+    /**
+     * 记录读取的数据
+     *
+     * @param bytes 字节数
+     */
+    public synchronized void onBytes(long bytes) {
+        long now = now();
+        if (startTime < 0) {
+            startTime = now;
+            windowStart = now;
+        }
+        totalBytes += bytes;
+        windowBytes += bytes;
+        long elapsed = now - windowStart;
+        if (elapsed >= window) {
+            instant = windowBytes * 1000 / elapsed;
+            smoothed = samples == 0 ? instant : alpha * instant + (1 - alpha) * smoothed;
+            samples++;
+            windowStart = now;
+            windowBytes = 0;
+        }
+    }
+
+    /**
+     * 获取平滑速度
+     *
+     * @return 字节/秒，没有样本返回0
+     */
+    public synchronized long getSpeed() {
+        return (long) smoothed;
+    }
+
+    /**
+     * 获取最近窗口的瞬时速度
+     *
+     * @return 字节/秒
+     */
+    public synchronized long getInstantSpeed() {
+        return instant;
+    }
+
+    /**
+     * 获取平均速度
+     *
+     * @return 字节/秒
+     */
+    public synchronized long getAverageSpeed() {
+        if (startTime < 0) {
+            return 0;
+        }
+        return totalBytes * 1000 / Math.max(1, now() - startTime);
+    }
+
+    /**
+     * 估算剩余时间
+     *
+     * @param remaining 剩余字节
+     * @return 毫秒，未知返回-1
+     */
+    public synchronized long getEta(long remaining) {
+        if (remaining < 0 || smoothed <= 0) {
+            return -1;
+        }
+        return (long) (remaining * 1000 / smoothed);
+    }
+
+    /**
+     * 获取样本数量
+     *
+     * @return
+     */
+    public synchronized int getSamples() {
+        return samples;
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+}
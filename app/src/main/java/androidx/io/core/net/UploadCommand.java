@@ -0,0 +1,611 @@
+package androidx.io.core.net;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.net.ssl.HttpsURLConnection;
+
+/**
+ * 上传指令，从文件或内容Uri按块流式读取上传，内存占用与文件大小无关
+ */
+public class UploadCommand implements Runnable {
+
+    public String TAG = UploadCommand.class.getSimpleName();
+    /**
+     * 分块上传，每块一个请求，携带Content-Range，服务器返回2xx或308确认，失败后从最后确认的块继续
+     */
+    public static final int MODE_RANGE = 0;
+    /**
+     * multipart/form-data单个请求流式上传，失败后从头上传
+     */
+    public static final int MODE_MULTIPART = 1;
+    /**
+     * 默认块大小
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private Context context;
+    private String url;
+    private File file;
+    private Uri uri;
+    private volatile boolean pause;
+    private volatile boolean cancel;
+    private int mode = MODE_RANGE;
+    private String method = "POST";
+    private long chunkSize = DEFAULT_CHUNK_SIZE;
+    private int bufferSize = Command.DEFAULT_BUFFER_SIZE;
+    private String fieldName = "file";
+    private String fileName;
+    private String contentType = "application/octet-stream";
+    private int connectTimeout;
+    private int readTimeout;
+    private Map<String, String> headers;
+    private Map<String, String> fields;
+    private RetryPolicy retryPolicy;
+    private RateLimiter rateLimiter;
+    private Messenger messenger;
+    private Closeable source;
+
+    public UploadCommand(Context context, String url, File file) {
+        this(context, url);
+        this.file = file;
+        this.fileName = file.getName();
+    }
+
+    public UploadCommand(Context context, String url, Uri uri) {
+        this(context, url);
+        this.uri = uri;
+        this.fileName = uri.getLastPathSegment();
+    }
+
+    private UploadCommand(Context context, String url) {
+        this.context = context;
+        this.url = url;
+        headers = new HashMap<>();
+        fields = new LinkedHashMap<>();
+        messenger = new Messenger();
+    }
+
+    /**
+     * 设置上传模式
+     *
+     * @param mode {@link #MODE_RANGE}、{@link #MODE_MULTIPART}
+     */
+    public void setMode(int mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * 设置请求方法，默认POST
+     *
+     * @param method 请求方法
+     */
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    /**
+     * 设置块大小，分块模式下每块一个请求，multipart模式下为chunked传输块大小
+     *
+     * @param chunkSize 块大小（字节）
+     */
+    public void setChunkSize(long chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * 设置读取缓冲大小，默认64KB
+     *
+     * @param bufferSize 缓冲大小（字节）
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = Math.max(1024, bufferSize);
+    }
+
+    /**
+     * 设置multipart文件字段
+     *
+     * @param fieldName   字段名
+     * @param fileName    文件名
+     * @param contentType 内容类型
+     */
+    public void setFilePart(String fieldName, String fileName, String contentType) {
+        this.fieldName = fieldName;
+        this.fileName = fileName;
+        this.contentType = contentType;
+    }
+
+    /**
+     * 添加multipart表单字段
+     *
+     * @param name  字段名
+     * @param value 字段值
+     */
+    public void addField(String name, String value) {
+        fields.put(name, value);
+    }
+
+    /**
+     * 添加请求头
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public void addHeader(String key, String value) {
+        headers.put(key, value);
+    }
+
+    /**
+     * 设置连接超时
+     *
+     * @param connectTimeout 毫秒，0表示系统默认
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * 设置读取超时
+     *
+     * @param readTimeout 毫秒，0表示系统默认
+     */
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * 设置重试策略
+     *
+     * @param retryPolicy 重试策略
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * 设置限速器
+     *
+     * @param rateLimiter 限速器
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * 设置上传监听
+     *
+     * @param listener 上传监听
+     */
+    public void setOnUploadListener(OnUploadListener listener) {
+        messenger.setOnUploadListener(listener);
+    }
+
+    /**
+     * 获取消息
+     *
+     * @return
+     */
+    public Messenger getMessenger() {
+        return messenger;
+    }
+
+    /**
+     * 暂停，分块模式下再次开始时从最后确认的块继续
+     */
+    public void pause() {
+        pause = true;
+    }
+
+    public boolean isPause() {
+        return pause;
+    }
+
+    /**
+     * 取消，同时清除续传记录
+     */
+    public void cancel() {
+        cancel = true;
+    }
+
+    public boolean isCancel() {
+        return cancel;
+    }
+
+    /**
+     * 获取上传标识
+     *
+     * @return
+     */
+    public String getKey() {
+        return method + "|" + url + "|" + (file != null ? file.getAbsolutePath() + "|" + file.lastModified() : uri);
+    }
+
+    /**
+     * 获取续传记录文件
+     *
+     * @return
+     */
+    private File getStateFile() {
+        File dir = new File(context.getExternalCacheDir(), "Upload");
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return new File(dir, Integer.toHexString(getKey().hashCode()) + ".upload");
+    }
+
+    /**
+     * 读取已确认的位置
+     *
+     * @param total 文件大小
+     * @return
+     */
+    private long loadOffset(long total) {
+        File state = getStateFile();
+        if (!state.exists()) {
+            return 0;
+        }
+        try {
+            String[] lines = read(new FileInputStream(state)).split("\n");
+            if (lines.length >= 3 && lines[0].equals(getKey()) && Long.parseLong(lines[2]) == total) {
+                return Math.min(total, Long.parseLong(lines[1]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * 保存已确认的位置
+     *
+     * @param offset 位置
+     * @param total  文件大小
+     */
+    private void saveOffset(long offset, long total) {
+        FileOutputStream fos = null;
+        try {
+            fos = new FileOutputStream(getStateFile());
+            fos.write((getKey() + "\n" + offset + "\n" + total).getBytes("UTF-8"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (fos != null) {
+                try {
+                    fos.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 打开数据源
+     *
+     * @return 文件通道
+     * @throws IOException
+     */
+    private FileChannel open() throws IOException {
+        if (file != null) {
+            FileInputStream fis = new FileInputStream(file);
+            source = fis;
+            return fis.getChannel();
+        }
+        ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(uri, "r");
+        if (descriptor == null) {
+            throw new FileNotFoundException(String.valueOf(uri));
+        }
+        source = descriptor;
+        return new FileInputStream(descriptor.getFileDescriptor()).getChannel();
+    }
+
+    /**
+     * 获取数据源大小
+     *
+     * @return 未知返回-1
+     */
+    private long length() {
+        if (file != null) {
+            return file.length();
+        }
+        return source instanceof ParcelFileDescriptor ? ((ParcelFileDescriptor) source).getStatSize() : -1;
+    }
+
+    /**
+     * 关闭数据源
+     */
+    private void close() {
+        if (source != null) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            source = null;
+        }
+    }
+
+    /**
+     * 打开连接
+     *
+     * @return
+     * @throws IOException
+     */
+    private HttpURLConnection openConnection() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        if (url.toUpperCase().startsWith("HTTPS")) {
+            HttpsURLConnection httpsURLConnection = (HttpsURLConnection) connection;
+            httpsURLConnection.setHostnameVerifier(new HttpsHostnameVerifier());
+            httpsURLConnection.setSSLSocketFactory(HttpsSSLSocketFactory.factory());
+        }
+        if (connectTimeout > 0) {
+            connection.setConnectTimeout(connectTimeout);
+        }
+        if (readTimeout > 0) {
+            connection.setReadTimeout(readTimeout);
+        }
+        connection.setDoInput(true);
+        connection.setDoOutput(true);
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Charset", "UTF-8");
+        for (String key : headers.keySet()) {
+            connection.setRequestProperty(key, headers.get(key));
+        }
+        return connection;
+    }
+
+    @Override
+    public void run() {
+        this.cancel = false;
+        this.pause = false;
+        int attempt = 0;
+        while (true) {
+            try {
+                if (mode == MODE_MULTIPART) {
+                    multipart();
+                } else {
+                    chunks();
+                }
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+                if (!retry(++attempt, e)) {
+                    messenger.send(e);
+                    return;
+                }
+            } finally {
+                close();
+                if (isCancel()) {
+                    getStateFile().delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * 按重试策略等待后重试
+     *
+     * @param attempt 第几次重试
+     * @param e       异常
+     * @return 是否重试
+     */
+    private boolean retry(int attempt, IOException e) {
+        if (retryPolicy == null || isCancel() || isPause() || !retryPolicy.isRetryable(attempt, e)) {
+            return false;
+        }
+        long delay = retryPolicy.getDelay(attempt);
+        Log.i(TAG, "retry " + attempt + " after " + delay + "ms");
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ie) {
+            return false;
+        }
+        return !isCancel() && !isPause();
+    }
+
+    /**
+     * 分块上传，从最后确认的位置继续
+     *
+     * @throws IOException
+     */
+    private void chunks() throws IOException {
+        FileChannel channel = open();
+        long total = length();
+        if (total <= 0) {
+            throw new IOException("The file length value is " + total + " and cannot be uploaded in chunks");
+        }
+        long offset = loadOffset(total);
+        Log.i(TAG, "upload from " + offset + "/" + total);
+        messenger.send(total, offset);
+        ByteBuffer buffer = BufferPool.acquire(bufferSize);
+        try {
+            String response = "";
+            while (offset < total) {
+                if (isCancel() || isPause()) {
+                    return;
+                }
+                long length = Math.min(chunkSize, total - offset);
+                HttpURLConnection connection = openConnection();
+                try {
+                    connection.setFixedLengthStreamingMode(length);
+                    connection.setRequestProperty("Content-Type", contentType);
+                    connection.setRequestProperty("Content-Range", "bytes " + offset + "-" + (offset + length - 1) + "/" + total);
+                    OutputStream os = connection.getOutputStream();
+                    channel.position(offset);
+                    transfer(channel, Channels.newChannel(os), buffer, length, total, offset);
+                    os.close();
+                    int code = connection.getResponseCode();
+                    Log.i(TAG, "chunk " + offset + "+" + length + " code: " + code);
+                    if (code != 308 && (code < 200 || code >= 300)) {
+                        throw new HttpException(code, connection.getResponseMessage());
+                    }
+                    offset = acknowledged(connection, offset + length);
+                    saveOffset(offset, total);
+                    messenger.send(total, offset);
+                    if (offset >= total) {
+                        response = read(connection.getInputStream());
+                    }
+                } finally {
+                    connection.disconnect();
+                }
+            }
+            getStateFile().delete();
+            messenger.send(response);
+        } finally {
+            BufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * 获取服务器确认的位置，308响应的Range头表示服务器已收到的范围
+     *
+     * @param connection 连接
+     * @param expected   本块结束位置
+     * @return
+     */
+    private long acknowledged(HttpURLConnection connection, long expected) {
+        String range = connection.getHeaderField("Range");
+        if (range == null || !range.contains("-")) {
+            return expected;
+        }
+        try {
+            return Long.parseLong(range.substring(range.lastIndexOf("-") + 1).trim()) + 1;
+        } catch (NumberFormatException e) {
+            return expected;
+        }
+    }
+
+    /**
+     * multipart/form-data上传，大小已知时固定长度，未知时chunked传输
+     *
+     * @throws IOException
+     */
+    private void multipart() throws IOException {
+        FileChannel channel = open();
+        long total = length();
+        String boundary = "----IOCore" + Long.toHexString(System.nanoTime());
+        StringBuilder builder = new StringBuilder();
+        for (String name : fields.keySet()) {
+            builder.append("--").append(boundary).append("\r\n");
+            builder.append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n");
+            builder.append(fields.get(name)).append("\r\n");
+        }
+        builder.append("--").append(boundary).append("\r\n");
+        builder.append("Content-Disposition: form-data; name=\"").append(fieldName).append("\"; filename=\"").append(fileName).append("\"\r\n");
+        builder.append("Content-Type: ").append(contentType).append("\r\n\r\n");
+        byte[] head = builder.toString().getBytes("UTF-8");
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes("UTF-8");
+        messenger.send(total, 0);
+        ByteBuffer buffer = BufferPool.acquire(bufferSize);
+        HttpURLConnection connection = openConnection();
+        try {
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+            if (total >= 0) {
+                connection.setFixedLengthStreamingMode(head.length + total + tail.length);
+            } else {
+                connection.setChunkedStreamingMode((int) Math.min(Integer.MAX_VALUE, chunkSize));
+            }
+            OutputStream os = connection.getOutputStream();
+            os.write(head);
+            long sent = transfer(channel, Channels.newChannel(os), buffer, total, total, 0);
+            if (isCancel() || isPause()) {
+                return;
+            }
+            os.write(tail);
+            os.close();
+            int code = connection.getResponseCode();
+            Log.i(TAG, "multipart " + sent + " code: " + code);
+            if (code < 200 || code >= 300) {
+                throw new HttpException(code, connection.getResponseMessage());
+            }
+            messenger.send(sent, sent);
+            messenger.send(read(connection.getInputStream()));
+        } finally {
+            connection.disconnect();
+            BufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * 从数据源写入请求
+     *
+     * @param channel 数据源
+     * @param out     请求输出
+     * @param buffer  缓冲区
+     * @param length  写入长度，小于0表示到结束
+     * @param total   文件大小
+     * @param offset  开始位置，用于进度
+     * @return 写入长度
+     * @throws IOException
+     */
+    private long transfer(FileChannel channel, WritableByteChannel out, ByteBuffer buffer, long length, long total, long offset) throws IOException {
+        long sent = 0;
+        while ((length < 0 || sent < length) && !isCancel() && !isPause()) {
+            buffer.clear();
+            if (length >= 0) {
+                buffer.limit((int) Math.min(buffer.capacity(), length - sent));
+            }
+            int read = channel.read(buffer);
+            if (read == -1) {
+                if (length < 0) {
+                    break;
+                }
+                throw new EOFException("Unexpected end of source at " + (offset + sent));
+            }
+            if (rateLimiter != null) {
+                rateLimiter.acquire(read);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            sent += read;
+            messenger.send(total, offset + sent);
+        }
+        return sent;
+    }
+
+    /**
+     * 读取响应内容
+     *
+     * @param is 输入流
+     * @return
+     * @throws IOException
+     */
+    private static String read(InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = is.read(buffer)) != -1) {
+                bos.write(buffer, 0, length);
+            }
+        } finally {
+            is.close();
+        }
+        return bos.toString("UTF-8");
+    }
+
+}
@@ -0,0 +1,204 @@
+package androidx.io.core.net;
+
+import android.content.Context;
+import android.net.Uri;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 上传助手，按块流式上传文件或内容Uri，大文件不需要整体读入内存
+ */
+public class Uploader {
+
+    private UploadCommand command;
+    private ExecutorService service;
+
+    /**
+     * 构建上传器
+     *
+     * @param context 上下文
+     * @param url     上传地址
+     * @param file    文件
+     */
+    public Uploader(Context context, String url, File file) {
+        command = new UploadCommand(context, url, file);
+        service = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * 构建上传器
+     *
+     * @param context 上下文
+     * @param url     上传地址
+     * @param uri     内容Uri
+     */
+    public Uploader(Context context, String url, Uri uri) {
+        command = new UploadCommand(context, url, uri);
+        service = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * 设置上传服务
+     *
+     * @param service
+     */
+    public void setService(ExecutorService service) {
+        this.service = service;
+    }
+
+    /**
+     * 获取上传命令
+     *
+     * @return
+     */
+    public UploadCommand getCommand() {
+        return command;
+    }
+
+    /**
+     * 设置上传模式，默认{@link UploadCommand#MODE_RANGE}分块上传，每块携带Content-Range，
+     * 服务器返回2xx或308确认（308可带Range头表示已收到的范围），失败或暂停后从最后确认的块继续；
+     * {@link UploadCommand#MODE_MULTIPART}为单个multipart/form-data请求，失败后从头上传。
+     *
+     * @param mode 上传模式
+     */
+    public void setMode(int mode) {
+        command.setMode(mode);
+    }
+
+    /**
+     * 设置请求方法，默认POST
+     *
+     * @param method 请求方法
+     */
+    public void setMethod(String method) {
+        command.setMethod(method);
+    }
+
+    /**
+     * 设置块大小，默认1MB
+     *
+     * @param chunkSize 块大小（字节）
+     */
+    public void setChunkSize(long chunkSize) {
+        command.setChunkSize(chunkSize);
+    }
+
+    /**
+     * 设置读取缓冲大小，默认64KB
+     *
+     * @param bufferSize 缓冲大小（字节）
+     */
+    public void setBufferSize(int bufferSize) {
+        command.setBufferSize(bufferSize);
+    }
+
+    /**
+     * 设置multipart文件字段
+     *
+     * @param fieldName   字段名，默认file
+     * @param fileName    文件名
+     * @param contentType 内容类型，默认application/octet-stream
+     */
+    public void setFilePart(String fieldName, String fileName, String contentType) {
+        command.setFilePart(fieldName, fileName, contentType);
+    }
+
+    /**
+     * 添加multipart表单字段
+     *
+     * @param name  字段名
+     * @param value 字段值
+     */
+    public void addField(String name, String value) {
+        command.addField(name, value);
+    }
+
+    /**
+     * 添加请求头
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public void addHeader(String key, String value) {
+        command.addHeader(key, value);
+    }
+
+    /**
+     * 设置连接超时
+     *
+     * @param connectTimeout 毫秒，0表示系统默认
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        command.setConnectTimeout(connectTimeout);
+    }
+
+    /**
+     * 设置读取超时
+     *
+     * @param readTimeout 毫秒，0表示系统默认
+     */
+    public void setReadTimeout(int readTimeout) {
+        command.setReadTimeout(readTimeout);
+    }
+
+    /**
+     * 设置重试策略，失败后按策略从最后确认的块继续
+     *
+     * @param retryPolicy 重试策略
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        command.setRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * 设置上传限速器
+     *
+     * @param rateLimiter 限速器
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        command.setRateLimiter(rateLimiter);
+    }
+
+    /**
+     * 设置进度间隔时间，间隔内的进度合并为最新值发送
+     *
+     * @param interval 间隔时间（毫秒），0表示不限制
+     */
+    public void setProgressInterval(long interval) {
+        command.getMessenger().setProgressInterval(interval);
+    }
+
+    /**
+     * 设置上传监听
+     *
+     * @param listener 上传监听
+     */
+    public void setOnUploadListener(OnUploadListener listener) {
+        command.setOnUploadListener(listener);
+    }
+
+    /**
+     * 暂停上传
+     */
+    public void pause() {
+        command.pause();
+    }
+
+    /**
+     * 取消上传
+     */
+    public void cancel() {
+        command.cancel();
+    }
+
+    /**
+     * 开始上传
+     */
+    public void start() {
+        service.execute(command);
+    }
+
+}
@@ -0,0 +1,18 @@
+package androidx.io.core.net;
+
+import java.util.zip.ZipEntry;
+
+/**
+ * 压缩包条目过滤
+ */
+public interface ZipEntryFilter {
+
+    /**
+     * 是否解压条目
+     *
+     * @param entry 条目
+     * @return true解压，false跳过
+     */
+    boolean accept(ZipEntry entry);
+
+}
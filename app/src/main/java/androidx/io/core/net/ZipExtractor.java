@@ -0,0 +1,141 @@
+package androidx.io.core.net;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 压缩包边下载边解压，直接从响应流解压到目标文件夹，不保存压缩包
+ */
+public class ZipExtractor {
+
+    public String TAG = ZipExtractor.class.getSimpleName();
+
+    private File dir;
+    private ZipEntryFilter filter;
+    private OnZipEntryListener listener;
+    private List<File> files;
+
+    /**
+     * 构建解压器
+     *
+     * @param dir 目标文件夹
+     */
+    public ZipExtractor(File dir) {
+        this.dir = dir;
+        this.files = new ArrayList<>();
+    }
+
+    /**
+     * 获取目标文件夹
+     *
+     * @return
+     */
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * 设置条目过滤
+     *
+     * @param filter 过滤
+     */
+    public void setZipEntryFilter(ZipEntryFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * 设置条目解压监听
+     *
+     * @param listener 监听
+     */
+    public void setOnZipEntryListener(OnZipEntryListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 获取已解压的文件
+     *
+     * @return
+     */
+    public List<File> getFiles() {
+        return files;
+    }
+
+    /**
+     * 从输入流解压，读取到流结束
+     *
+     * @param is         输入流
+     * @param bufferSize 缓冲大小
+     * @throws IOException
+     */
+    public void extract(InputStream is, int bufferSize) throws IOException {
+        files.clear();
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        String root = dir.getCanonicalPath() + File.separator;
+        ZipInputStream zis = new ZipInputStream(new BufferedInputStream(is, bufferSize));
+        byte[] buffer = new byte[bufferSize];
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            File file = new File(dir, entry.getName());
+            if (!file.getCanonicalPath().startsWith(root)) {
+                throw new IOException("Illegal zip entry " + entry.getName());
+            }
+            if (filter != null && !filter.accept(entry)) {
+                continue;
+            }
+            if (entry.isDirectory()) {
+                file.mkdirs();
+                continue;
+            }
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            FileOutputStream fos = new FileOutputStream(file);
+            files.add(file);
+            long progress = 0;
+            try {
+                int length;
+                while ((length = zis.read(buffer)) != -1) {
+                    fos.write(buffer, 0, length);
+                    progress += length;
+                    if (listener != null) {
+                        listener.onZipEntryProgress(entry.getName(), entry.getSize(), progress);
+                    }
+                }
+            } finally {
+                fos.close();
+            }
+            Log.i(TAG, "entry: " + file.getAbsolutePath());
+            if (listener != null) {
+                listener.onZipEntryCompleted(file);
+            }
+        }
+        while (zis.read(buffer) != -1) {
+        }
+        while (is.read(buffer) != -1) {
+        }
+    }
+
+    /**
+     * 删除已解压的文件，用于下载失败
+     */
+    public void clear() {
+        for (File file : files) {
+            file.delete();
+        }
+        files.clear();
+    }
+
+}
@@ -0,0 +1,94 @@
+package androidx.io.core.net;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 块校验索引读写、旧文件匹配和范围解析测试
+ */
+public class BlockIndexTest {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private static File write(byte[] data) throws IOException {
+        File file = File.createTempFile("block", ".bin");
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(data);
+        } finally {
+            fos.close();
+        }
+        return file;
+    }
+
+    private static BlockIndex index(byte[] data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BlockIndex.write(write(data), BLOCK_SIZE, bos);
+        return BlockIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+    }
+
+    private static byte[] random(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void write_readRoundTrip() throws IOException {
+        BlockIndex index = index(random(BLOCK_SIZE * 3 + 10));
+        assertEquals(BLOCK_SIZE, index.getBlockSize());
+        assertEquals(BLOCK_SIZE * 3 + 10, index.getLength());
+        assertEquals(4, index.getBlockCount());
+        assertEquals(10, index.getBlockLength(3));
+        assertEquals(64, index.getSHA256().length());
+    }
+
+    @Test
+    public void match_findsShiftedBlocks() throws IOException {
+        byte[] data = random(BLOCK_SIZE * 8 + 100);
+        BlockIndex index = index(data);
+        byte[] old = new byte[data.length + 7];
+        System.arraycopy(data, 0, old, 7, data.length);
+        old[7 + BLOCK_SIZE * 2 + 1] ^= 1;
+        long[] found = index.match(write(old));
+        assertEquals(9, found.length);
+        for (int i = 0; i < found.length; i++) {
+            assertEquals("block " + i, i == 2 ? -1 : 7 + (long) i * BLOCK_SIZE, found[i]);
+        }
+    }
+
+    @Test
+    public void match_emptyFileFindsNothing() throws IOException {
+        long[] found = index(random(BLOCK_SIZE * 2)).match(write(new byte[0]));
+        assertArrayEquals(new long[]{-1, -1}, found);
+    }
+
+    @Test
+    public void parseContentRange() throws IOException {
+        assertArrayEquals(new long[]{0, 1023}, BlockDelta.parseContentRange("bytes 0-1023/4096"));
+        assertArrayEquals(new long[]{2048, 4095}, BlockDelta.parseContentRange(" bytes 2048-4095/*"));
+    }
+
+    @Test(expected = IOException.class)
+    public void parseContentRange_invalid() throws IOException {
+        BlockDelta.parseContentRange("bytes */4096");
+    }
+
+    @Test
+    public void parseBoundary() {
+        assertEquals("THIS_STRING", BlockDelta.parseBoundary("multipart/byteranges; boundary=THIS_STRING"));
+        assertEquals("a b", BlockDelta.parseBoundary("multipart/byteranges; boundary=\"a b\"; charset=utf-8"));
+        assertNull(BlockDelta.parseBoundary("application/octet-stream"));
+        assertNull(BlockDelta.parseBoundary(null));
+    }
+
+}
@@ -0,0 +1,56 @@
+package androidx.io.core.net;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * 摘要解码和流式校验测试，Base64依赖Android，只测试十六进制
+ */
+public class DigestVerifierTest {
+
+    private static final String ABC_SHA_256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    private static boolean verify(DigestVerifier verifier, String... parts) throws IOException {
+        verifier.reset();
+        for (String part : parts) {
+            verifier.update(ByteBuffer.wrap(part.getBytes("UTF-8")));
+        }
+        return verifier.verify();
+    }
+
+    @Test
+    public void verify_hexDigestInChunks() throws IOException {
+        assertTrue(verify(new DigestVerifier(DigestVerifier.SHA_256, ABC_SHA_256), "a", "bc"));
+    }
+
+    @Test
+    public void verify_upperCaseHex() throws IOException {
+        assertTrue(verify(new DigestVerifier(DigestVerifier.SHA_256, " " + ABC_SHA_256.toUpperCase() + " "), "abc"));
+    }
+
+    @Test
+    public void verify_mismatch() throws IOException {
+        assertFalse(verify(new DigestVerifier(DigestVerifier.SHA_256, ABC_SHA_256), "abd"));
+    }
+
+    @Test
+    public void verify_resetStartsOver() throws IOException {
+        DigestVerifier verifier = new DigestVerifier(DigestVerifier.SHA_256, ABC_SHA_256);
+        verifier.reset();
+        verifier.update(ByteBuffer.wrap("xyz".getBytes("UTF-8")));
+        assertTrue(verify(verifier, "abc"));
+    }
+
+    @Test
+    public void isSame_comparesDecodedDigest() {
+        DigestVerifier verifier = new DigestVerifier(DigestVerifier.SHA_256, ABC_SHA_256);
+        assertTrue(verifier.isSame(new DigestVerifier("sha-256", ABC_SHA_256.toUpperCase())));
+        assertFalse(verifier.isSame(new DigestVerifier(DigestVerifier.MD5, ABC_SHA_256)));
+        assertFalse(verifier.isSame(null));
+    }
+
+}
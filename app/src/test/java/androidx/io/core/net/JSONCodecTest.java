@@ -0,0 +1,75 @@
+package androidx.io.core.net;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 编译时生成的编解码器测试，测试类由compiler模块处理，生成的代码不能编译时测试编译失败
+ */
+public class JSONCodecTest {
+
+    public static class Base {
+        public long id;
+    }
+
+    @JSONClass
+    public static class Order extends Base {
+        String name;
+        int count;
+        double price;
+        boolean paid;
+        transient String temp = "t";
+        static String STATIC = "s";
+        List<Line> lines;
+        int[] nums;
+        Map<String, Line> byName;
+        Line main;
+    }
+
+    @JSONClass
+    public static class Line {
+        public String sku;
+        public int quantity;
+    }
+
+    @Test
+    public void codec_isGenerated() {
+        assertNotNull(ClassBinding.of(Order.class).getCodec());
+        assertNotNull(ClassBinding.of(Line.class).getCodec());
+    }
+
+    @Test
+    public void codec_roundTrip() {
+        String json = "{\"id\":7,\"name\":\"n\",\"count\":2,\"price\":1.5,\"paid\":true,\"temp\":\"x\","
+                + "\"lines\":[{\"sku\":\"a\",\"quantity\":1}],\"nums\":[4,5],"
+                + "\"byName\":{\"k\":{\"sku\":\"b\"}},\"main\":{\"sku\":\"m\"},\"unknown\":[1,{}]}";
+        Order order = JSON.toObject(json, Order.class);
+        assertEquals(7, order.id);
+        assertEquals("n", order.name);
+        assertEquals(2, order.count);
+        assertEquals(1.5, order.price, 0);
+        assertTrue(order.paid);
+        assertEquals("t", order.temp);
+        assertEquals("a", order.lines.get(0).sku);
+        assertEquals(5, order.nums[1]);
+        assertEquals("b", order.byName.get("k").sku);
+        assertEquals("m", order.main.sku);
+        String out = JSON.toJson(order);
+        assertFalse(out, out.contains("temp"));
+        assertFalse(out, out.contains("STATIC"));
+        assertEquals(out, JSON.toJson(JSON.toObject(out, Order.class)));
+    }
+
+    @Test
+    public void codec_bindsMismatchedTypesLikeReflection() {
+        Order order = JSON.toObject("{\"name\":{\"x\":1},\"main\":\"m\",\"count\":3}", Order.class);
+        assertEquals("{\"x\":1}", order.name);
+        assertNull(order.main);
+        assertEquals(3, order.count);
+    }
+
+}
@@ -0,0 +1,125 @@
+package androidx.io.core.net;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 流式JSON读取和直接绑定测试，包含截断和格式错误的输入
+ */
+public class JSONReaderTest {
+
+    public static class Item {
+        public String name;
+        public int count;
+        public double price;
+        public boolean ok;
+    }
+
+    public static class Root {
+        public String title;
+        public long id;
+        public List<Item> items;
+        public int[] nums;
+        public Map<String, Integer> scores;
+        public Item main;
+    }
+
+    @Test
+    public void readObject_bindsNestedFields() {
+        String json = "{\"title\":\"T\\u00e9st\\n\\\"q\\\"\",\"id\":12345678901,\"unknown\":{\"x\":[1,{\"y\":null}]},"
+                + "\"items\":[{\"name\":\"a\",\"count\":2,\"price\":1.5,\"ok\":true},{\"name\":\"b\"}],"
+                + "\"nums\":[1,2,3],\"scores\":{\"a\":1,\"b\":2},\"main\":{\"name\":\"m\"}}";
+        Root root = JSON.toObject(json, Root.class);
+        assertEquals("Tést\n\"q\"", root.title);
+        assertEquals(12345678901L, root.id);
+        assertEquals(2, root.items.size());
+        assertEquals("a", root.items.get(0).name);
+        assertEquals(2, root.items.get(0).count);
+        assertEquals(1.5, root.items.get(0).price, 0);
+        assertTrue(root.items.get(0).ok);
+        assertEquals("b", root.items.get(1).name);
+        assertEquals("[1, 2, 3]", Arrays.toString(root.nums));
+        assertEquals(Integer.valueOf(2), root.scores.get("b"));
+        assertEquals("m", root.main.name);
+    }
+
+    @Test
+    public void toCollection_readsElements() {
+        assertEquals(Arrays.asList(1, 2, 3), JSON.toCollection("[1,2,null,3]", Integer.class));
+        assertEquals(Arrays.asList("a", "b"), JSON.toCollection("[\"a\",\"b\"]", String.class));
+    }
+
+    @Test
+    public void peek_tokens() throws IOException {
+        JSONReader reader = new JSONReader(new StringReader("{\"a\":[true,null,\"s\",1]}"));
+        assertEquals(JSONReader.BEGIN_OBJECT, reader.peek());
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        reader.beginArray();
+        assertTrue(reader.nextBoolean());
+        reader.nextNull();
+        assertEquals("s", reader.nextString());
+        assertEquals(JSONReader.NUMBER, reader.peek());
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        reader.endObject();
+        assertEquals(JSONReader.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void readObject_truncatedReturnsNull() {
+        assertNull(JSON.toObject("{\"title\":", Root.class));
+        assertNull(JSON.toObject("{\"items\":[", Root.class));
+        assertNull(JSON.toObject("{\"title\":\"abc", Root.class));
+    }
+
+    @Test
+    public void toCollection_truncatedArrayIsEmpty() {
+        List<Integer> list = JSON.toCollection("[", Integer.class);
+        assertTrue(list == null || list.isEmpty());
+    }
+
+    @Test
+    public void readObject_malformedNumberSkipsField() {
+        Root root = JSON.toObject("{\"id\":1.2.3,\"title\":\"t\"}", Root.class);
+        assertEquals(0, root.id);
+        assertEquals("t", root.title);
+    }
+
+    @Test(expected = IOException.class)
+    public void readAny_malformedNumberThrows() throws IOException {
+        new JSONReader(new StringReader("[1.2.3]")).readAny();
+    }
+
+    @Test
+    public void readObject_keepsNestedJsonInStringField() {
+        Root root = JSON.toObject("{\"title\":{\"b\":[1,2.5,null],\"a\":\"x/y\"},\"main\":{\"name\":[true]}}", Root.class);
+        assertEquals("{\"b\":[1,2.5,null],\"a\":\"x\\/y\"}", root.title);
+        assertEquals("[true]", root.main.name);
+    }
+
+    @Test
+    public void readObject_trailingContentReturnsNull() {
+        assertNull(JSON.toObject("{\"title\":\"t\"} x", Root.class));
+        assertNull(JSON.toObject("{\"title\":\"t\"}{}", Root.class));
+        assertEquals("t", JSON.toObject(" {\"title\":\"t\"} \n", Root.class).title);
+        assertTrue(JSON.toCollection("[1] 2", Integer.class).isEmpty());
+    }
+
+    @Test
+    public void readObject_skipsMismatchedValues() {
+        Item item = JSON.toObject("{\"name\":\"n\",\"count\":1e3}", Item.class);
+        assertEquals("n", item.name);
+        Root root = JSON.toObject("{\"main\":\"text\",\"title\":\"t\"}", Root.class);
+        assertEquals("t", root.title);
+    }
+
+}
@@ -0,0 +1,101 @@
+package androidx.io.core.net;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 流式JSON写入和读写往返测试
+ */
+public class JSONWriterTest {
+
+    public static class Item {
+        public String name;
+        public int count;
+    }
+
+    public static class Root {
+        public String title;
+        public double price;
+        public List<Item> items;
+        public int[] nums;
+        public Map<String, Integer> scores;
+        public String empty;
+        public static String STATIC = "s";
+        public transient String temp = "t";
+    }
+
+    @Test
+    public void toJson_writesBeanWithoutNulls() {
+        Root root = new Root();
+        root.title = "a\"b\\c/\n\u2028";
+        root.price = 2.0;
+        Item item = new Item();
+        item.name = "i";
+        item.count = 3;
+        root.items = Arrays.asList(item);
+        root.nums = new int[]{1, 2};
+        root.scores = new LinkedHashMap<>();
+        root.scores.put("x", 1);
+        String json = JSON.toJson(root);
+        assertTrue(json, json.contains("\"title\":\"a\\\"b\\\\c\\/\\n\\u2028\""));
+        assertTrue(json, json.contains("\"price\":2"));
+        assertTrue(json, json.contains("\"items\":[{\"name\":\"i\",\"count\":3}]"));
+        assertTrue(json, json.contains("\"nums\":[1,2]"));
+        assertTrue(json, json.contains("\"scores\":{\"x\":1}"));
+        assertFalse(json, json.contains("empty"));
+        //没有编解码器的类与原有反射行为一致，静态字段和transient字段也写入
+        assertTrue(json, json.contains("\"STATIC\":\"s\""));
+        assertTrue(json, json.contains("\"temp\":\"t\""));
+    }
+
+    @Test
+    public void toJson_roundTrip() {
+        Root root = new Root();
+        root.title = "Tést\t\"q\"";
+        root.price = 1.25;
+        root.items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Item item = new Item();
+            item.name = "n" + i;
+            item.count = i;
+            root.items.add(item);
+        }
+        root.nums = new int[]{4, 5, 6};
+        Root copy = JSON.toObject(JSON.toJson(root), Root.class);
+        assertEquals(root.title, copy.title);
+        assertEquals(root.price, copy.price, 0);
+        assertEquals(3, copy.items.size());
+        assertEquals("n2", copy.items.get(2).name);
+        assertEquals(2, copy.items.get(2).count);
+        assertEquals(Arrays.toString(root.nums), Arrays.toString(copy.nums));
+    }
+
+    @Test
+    public void value_nonFiniteIsNull() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        new JSONWriter(builder).beginArray().value(Double.NaN).value(Double.POSITIVE_INFINITY).value(1.5).endArray();
+        assertEquals("[null,null,1.5]", builder.toString());
+    }
+
+    @Test
+    public void toJson_writer() {
+        StringWriter writer = new StringWriter();
+        JSON.toJson(Arrays.asList("a", null, 1), writer);
+        assertEquals("[\"a\",null,1]", writer.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void endObject_withoutBeginThrows() throws IOException {
+        new JSONWriter(new StringBuilder()).endObject();
+    }
+
+}
@@ -0,0 +1,60 @@
+package androidx.io.core.net;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 下载指标汇总测试
+ */
+public class MetricsAggregatorTest {
+
+    private static DownloadMetrics metrics(long connect, int status) {
+        DownloadMetrics item = new DownloadMetrics("http://example.com/" + connect, 1, 8192);
+        item.onConnected(connect, connect + 10);
+        item.onFinish(status, null);
+        return item;
+    }
+
+    @Test
+    public void getPercentile_nearestRank() {
+        MetricsAggregator aggregator = new MetricsAggregator();
+        for (int i = 100; i >= 1; i--) {
+            aggregator.onDownloadMetrics(metrics(i, DownloadMetrics.STATUS_COMPLETED));
+        }
+        assertEquals(50, aggregator.getPercentile(MetricsAggregator.CONNECT, 50));
+        assertEquals(95, aggregator.getPercentile(MetricsAggregator.CONNECT, 95));
+        assertEquals(100, aggregator.getPercentile(MetricsAggregator.CONNECT, 100));
+        assertEquals(1, aggregator.getPercentile(MetricsAggregator.CONNECT, 0));
+    }
+
+    @Test
+    public void getPercentile_skipsUnrecordedTls() {
+        MetricsAggregator aggregator = new MetricsAggregator();
+        DownloadMetrics item = metrics(5, DownloadMetrics.STATUS_COMPLETED);
+        aggregator.onDownloadMetrics(item);
+        assertEquals(-1, aggregator.getPercentile(MetricsAggregator.TLS, 50));
+        item.onTls(3);
+        item.onTls(4);
+        assertEquals(3, aggregator.getPercentile(MetricsAggregator.TLS, 50));
+    }
+
+    @Test
+    public void getPercentile_emptyReturnsMinusOne() {
+        assertEquals(-1, new MetricsAggregator().getPercentile(MetricsAggregator.CONNECT, 50));
+    }
+
+    @Test
+    public void onDownloadMetrics_keepsLatestWithinCapacity() {
+        MetricsAggregator aggregator = new MetricsAggregator(3);
+        aggregator.onDownloadMetrics(metrics(1, DownloadMetrics.STATUS_FAILED));
+        aggregator.onDownloadMetrics(metrics(2, DownloadMetrics.STATUS_COMPLETED));
+        aggregator.onDownloadMetrics(metrics(3, DownloadMetrics.STATUS_COMPLETED));
+        aggregator.onDownloadMetrics(metrics(4, DownloadMetrics.STATUS_FAILED));
+        assertEquals(3, aggregator.getMetrics().size());
+        assertEquals(2, aggregator.getPercentile(MetricsAggregator.CONNECT, 0));
+        assertEquals(1, aggregator.getCount(DownloadMetrics.STATUS_FAILED));
+        assertEquals(2, aggregator.getCount(DownloadMetrics.STATUS_COMPLETED));
+    }
+
+}
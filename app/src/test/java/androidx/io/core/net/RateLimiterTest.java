@@ -0,0 +1,55 @@
+package androidx.io.core.net;
+
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 令牌桶限速测试
+ */
+public class RateLimiterTest {
+
+    @Test
+    public void acquire_unlimitedDoesNotWait() throws InterruptedIOException {
+        RateLimiter limiter = new RateLimiter(RateLimiter.UNLIMITED);
+        assertFalse(limiter.isLimited());
+        long start = System.nanoTime();
+        limiter.acquire(Integer.MAX_VALUE);
+        assertTrue(System.nanoTime() - start < 50000000L);
+    }
+
+    @Test
+    public void acquire_waitsForMissingTokens() throws InterruptedIOException {
+        RateLimiter limiter = new RateLimiter(10000);
+        long start = System.nanoTime();
+        limiter.acquire(10000);
+        assertTrue(System.nanoTime() - start < 50000000L);
+        limiter.acquire(5000);
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertTrue("waited " + millis, millis >= 400);
+    }
+
+    @Test
+    public void setBytesPerSecond_releasesWaiting() throws Exception {
+        final RateLimiter limiter = new RateLimiter(1);
+        limiter.acquire(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    limiter.acquire(100000);
+                } catch (InterruptedIOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        thread.start();
+        Thread.sleep(50);
+        limiter.setBytesPerSecond(RateLimiter.UNLIMITED);
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+    }
+
+}
@@ -0,0 +1,47 @@
+package androidx.io.core.net;
+
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 重试判断和退避时间测试
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void getDelay_growsWithinCap() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 1000);
+        for (int i = 0; i < 100; i++) {
+            long first = policy.getDelay(1);
+            assertTrue(first >= 0 && first < 100);
+            long third = policy.getDelay(3);
+            assertTrue(third >= 0 && third < 400);
+            long late = policy.getDelay(40);
+            assertTrue(late >= 0 && late < 1000);
+        }
+    }
+
+    @Test
+    public void isRetryable_stopsAfterMaxRetries() {
+        RetryPolicy policy = new RetryPolicy(2, 100, 1000);
+        IOException e = new SocketTimeoutException();
+        assertTrue(policy.isRetryable(1, e));
+        assertTrue(policy.isRetryable(2, e));
+        assertFalse(policy.isRetryable(3, e));
+    }
+
+    @Test
+    public void isRetryable_skipsPermanentErrors() {
+        RetryPolicy policy = new RetryPolicy();
+        assertFalse(policy.isRetryable(1, new FileNotFoundException()));
+        assertFalse(policy.isRetryable(1, new HttpException(404, "Not Found")));
+        assertTrue(policy.isRetryable(1, new HttpException(503, "Service Unavailable")));
+        assertTrue(policy.isRetryable(429));
+    }
+
+}
@@ -0,0 +1,76 @@
+package androidx.io.core.net;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分段预留和拆分测试
+ */
+public class SegmentTest {
+
+    @Test
+    public void reserve_stopsAtEnd() {
+        Segment segment = new Segment(0, 99);
+        assertEquals(60, segment.reserve(60));
+        assertEquals(40, segment.reserve(60));
+        assertEquals(0, segment.reserve(60));
+        assertTrue(segment.isFinished());
+    }
+
+    @Test
+    public void split_takesSecondHalfOfRemaining() {
+        Segment segment = new Segment(0, 99);
+        segment.reserve(20);
+        Segment tail = segment.split(10);
+        assertNotNull(tail);
+        assertEquals(60, tail.getStart());
+        assertEquals(99, tail.getEnd());
+        assertEquals(59, segment.getEnd());
+        assertEquals(40, segment.getRemaining());
+        assertEquals(40, tail.getRemaining());
+    }
+
+    @Test
+    public void split_refusesSmallRemaining() {
+        Segment segment = new Segment(0, 99);
+        segment.reserve(90);
+        assertNull(segment.split(10));
+        assertEquals(99, segment.getEnd());
+    }
+
+    @Test
+    public void reserve_afterSplitStopsAtNewEnd() {
+        Segment segment = new Segment(0, 99);
+        segment.split(10);
+        assertEquals(50, segment.reserve(80));
+        assertEquals(0, segment.reserve(1));
+    }
+
+    @Test
+    public void toString_recordsCommittedPosition() {
+        Segment segment = new Segment(0, 99);
+        segment.claim();
+        assertEquals(30, segment.reserve(30));
+        assertEquals("0,0,99", segment.toString());
+        segment.commit(30);
+        assertEquals("0,30,99", segment.toString());
+        assertEquals(70, segment.reserve(80));
+        assertTrue(segment.isFinished());
+        assertFalse(segment.isCommitted());
+    }
+
+    @Test
+    public void release_rollsBackUncommitted() {
+        Segment segment = new Segment(0, 99);
+        segment.claim();
+        segment.reserve(30);
+        segment.commit(30);
+        segment.reserve(50);
+        segment.release();
+        assertFalse(segment.isClaimed());
+        assertEquals(30, segment.getPosition());
+        assertEquals(30, segment.getCommitted());
+    }
+
+}
@@ -0,0 +1,47 @@
+package androidx.io.core.net;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 速度和剩余时间估算测试
+ */
+public class ThroughputEstimatorTest {
+
+    @Test
+    public void getEta_unknownWithoutSamples() {
+        ThroughputEstimator estimator = new ThroughputEstimator();
+        estimator.onBytes(1000);
+        assertEquals(0, estimator.getSamples());
+        assertEquals(0, estimator.getSpeed());
+        assertEquals(-1, estimator.getEta(1000));
+    }
+
+    @Test
+    public void onBytes_samplesAfterWindow() throws InterruptedException {
+        ThroughputEstimator estimator = new ThroughputEstimator(20, 0.5);
+        estimator.onBytes(1000);
+        Thread.sleep(40);
+        estimator.onBytes(1000);
+        assertEquals(1, estimator.getSamples());
+        long speed = estimator.getSpeed();
+        assertTrue(speed > 0);
+        assertEquals(speed, estimator.getInstantSpeed());
+        assertEquals(10000 * 1000 / speed, estimator.getEta(10000), 1);
+        assertEquals(-1, estimator.getEta(-1));
+    }
+
+    @Test
+    public void reset_clearsSamples() throws InterruptedException {
+        ThroughputEstimator estimator = new ThroughputEstimator(1, 1);
+        estimator.onBytes(1000);
+        Thread.sleep(5);
+        estimator.onBytes(1000);
+        estimator.reset();
+        assertEquals(0, estimator.getSamples());
+        assertEquals(0, estimator.getSpeed());
+        assertEquals(0, estimator.getAverageSpeed());
+    }
+
+}
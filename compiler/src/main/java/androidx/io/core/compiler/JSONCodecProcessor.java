@@ -0,0 +1,368 @@
+package androidx.io.core.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * JSON编解码器注解处理器，为androidx.io.core.net.JSONClass注解的类生成"类名$$JSONCodec"，
+ * 直接读写字段，字段不能访问时使用get、set方法
+ */
+public class JSONCodecProcessor extends AbstractProcessor {
+
+    public static final String ANNOTATION = "androidx.io.core.net.JSONClass";
+    public static final String SUFFIX = "$$JSONCodec";
+    private static final String NET = "androidx.io.core.net.";
+
+    private Elements elements;
+    private Types types;
+    private Messager messager;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        messager = processingEnv.getMessager();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "@JSONClass only supports classes", element);
+                    continue;
+                }
+                TypeElement type = (TypeElement) element;
+                if (check(type)) {
+                    generate(type);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 检查类是否可以生成编解码器：非抽象、非私有、静态内部类、有可访问的无参构造方法
+     *
+     * @param type 类
+     * @return
+     */
+    private boolean check(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT) || modifiers.contains(Modifier.PRIVATE)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "@JSONClass class must not be abstract or private", type);
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "@JSONClass nested class must be static", type);
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "@JSONClass class must not be local", type);
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        messager.printMessage(Diagnostic.Kind.ERROR, "@JSONClass class needs a non-private no-arg constructor", type);
+        return false;
+    }
+
+    /**
+     * 收集本类及父类的字段，同名字段优先本类，不包含静态、transient字段
+     *
+     * @param type 类
+     * @return 字段
+     */
+    private List<Property> properties(TypeElement type) {
+        PackageElement pkg = elements.getPackageOf(type);
+        DeclaredType declared = (DeclaredType) type.asType();
+        List<ExecutableElement> methods = ElementFilter.methodsIn(elements.getAllMembers(type));
+        Map<String, Property> properties = new LinkedHashMap<>();
+        TypeElement clazz = type;
+        while (clazz != null && !clazz.getQualifiedName().contentEquals("java.lang.Object")) {
+            for (VariableElement field : ElementFilter.fieldsIn(clazz.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                String name = field.getSimpleName().toString();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)
+                        || properties.containsKey(name) || name.equals("$change")) {
+                    continue;
+                }
+                Property property = new Property();
+                property.name = name;
+                property.type = types.asMemberOf(declared, field);
+                boolean accessible = accessible(field, pkg);
+                property.getter = accessible ? name : findGetter(methods, name, property.type, pkg);
+                if (property.getter == null) {
+                    messager.printMessage(Diagnostic.Kind.ERROR, "@JSONClass field " + name
+                            + " is not accessible and has no getter", field);
+                    continue;
+                }
+                if (!accessible) {
+                    property.getter += "()";
+                }
+                //final字段没有set方法时只写入不读取
+                property.setter = accessible && !modifiers.contains(Modifier.FINAL) ? name : findSetter(methods, name, property.type, pkg);
+                properties.put(name, property);
+            }
+            TypeMirror superclass = clazz.getSuperclass();
+            clazz = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) types.asElement(superclass) : null;
+        }
+        return new ArrayList<>(properties.values());
+    }
+
+    /**
+     * 是否可从生成类访问
+     *
+     * @param element 字段、方法
+     * @param pkg     生成类的包
+     * @return
+     */
+    private boolean accessible(Element element, PackageElement pkg) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        return !modifiers.contains(Modifier.PRIVATE) && elements.getPackageOf(element).equals(pkg);
+    }
+
+    private String findGetter(List<ExecutableElement> methods, String name, TypeMirror type, PackageElement pkg) {
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (ExecutableElement method : methods) {
+            String methodName = method.getSimpleName().toString();
+            boolean matched = methodName.equals("get" + suffix)
+                    || (methodName.equals("is" + suffix) && type.getKind() == TypeKind.BOOLEAN);
+            if (matched && method.getParameters().isEmpty() && !method.getModifiers().contains(Modifier.STATIC)
+                    && accessible(method, pkg) && types.isSameType(types.erasure(method.getReturnType()), types.erasure(type))) {
+                return methodName;
+            }
+        }
+        return null;
+    }
+
+    private String findSetter(List<ExecutableElement> methods, String name, TypeMirror type, PackageElement pkg) {
+        String methodName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (ExecutableElement method : methods) {
+            if (method.getSimpleName().contentEquals(methodName) && method.getParameters().size() == 1
+                    && !method.getModifiers().contains(Modifier.STATIC) && accessible(method, pkg)
+                    && types.isSameType(types.erasure(method.getParameters().get(0).asType()), types.erasure(type))) {
+                return methodName;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 生成编解码器源文件
+     *
+     * @param type 类
+     */
+    private void generate(TypeElement type) {
+        List<Property> properties = properties(type);
+        String pkg = elements.getPackageOf(type).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = (pkg.length() == 0 ? binaryName : binaryName.substring(pkg.length() + 1)) + SUFFIX;
+        String typeName = type.getQualifiedName().toString();
+        StringBuilder source = new StringBuilder();
+        if (pkg.length() > 0) {
+            source.append("package ").append(pkg).append(";\n\n");
+        }
+        source.append("/**\n * Generated by ").append(JSONCodecProcessor.class.getSimpleName())
+                .append(" for {@link ").append(typeName).append("}, do not edit.\n */\n");
+        source.append("public final class ").append(simpleName).append(" implements ")
+                .append(NET).append("JSONCodec<").append(typeName).append("> {\n\n");
+        //read
+        source.append("    @Override\n    @SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("    public ").append(typeName).append(" read(").append(NET)
+                .append("JSONReader reader) throws java.io.IOException {\n");
+        source.append("        if (reader.peek() != ").append(NET).append("JSONReader.BEGIN_OBJECT) {\n");
+        source.append("            reader.skipValue();\n            return null;\n        }\n");
+        source.append("        ").append(typeName).append(" bean = new ").append(typeName).append("();\n");
+        source.append("        reader.beginObject();\n        while (reader.hasNext()) {\n");
+        source.append("            Object value;\n            switch (reader.nextName()) {\n");
+        for (Property property : properties) {
+            source.append("                case \"").append(property.name).append("\":\n");
+            if (property.setter == null) {
+                source.append("                    reader.skipValue();\n                    break;\n");
+                continue;
+            }
+            source.append("                    value = ").append(readExpression(property.type)).append(";\n");
+            //类型不符时跳过字段，例如字符串字段收到对象，与反射一致
+            source.append("                    if (value instanceof ").append(castName(property.type)).append(") {\n");
+            String value = "(" + castName(property.type) + ") value";
+            if (property.setter.equals(property.name)) {
+                source.append("                        bean.").append(property.name).append(" = ").append(value).append(";\n");
+            } else {
+                source.append("                        bean.").append(property.setter).append("(").append(value).append(");\n");
+            }
+            source.append("                    }\n                    break;\n");
+        }
+        source.append("                default:\n                    reader.skipValue();\n                    break;\n");
+        source.append("            }\n        }\n        reader.endObject();\n        return bean;\n    }\n\n");
+        //write
+        source.append("    @Override\n");
+        source.append("    public void write(").append(NET).append("JSONWriter writer, ").append(typeName)
+                .append(" value) throws java.io.IOException {\n");
+        source.append("        writer.beginObject();\n");
+        for (Property property : properties) {
+            String quotedName = "\"\\\"" + property.name + "\\\":\"";
+            String getter = "value." + property.getter;
+            TypeKind kind = property.type.getKind();
+            if (kind.isPrimitive()) {
+                source.append("        writer.quotedName(").append(quotedName).append(");\n");
+                if (kind == TypeKind.BOOLEAN) {
+                    source.append("        writer.value(").append(getter).append(");\n");
+                } else if (kind == TypeKind.CHAR) {
+                    source.append("        writer.write(Character.valueOf(").append(getter).append("));\n");
+                } else {
+                    source.append("        writer.value((Number) ").append(getter).append(");\n");
+                }
+            } else {
+                source.append("        if (").append(getter).append(" != null) {\n");
+                source.append("            writer.quotedName(").append(quotedName).append(");\n");
+                source.append("            writer.write(").append(getter).append(");\n");
+                source.append("        }\n");
+            }
+        }
+        source.append("        writer.endObject();\n    }\n\n}\n");
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                    pkg.length() == 0 ? simpleName : pkg + "." + simpleName, type);
+            Writer writer = file.openWriter();
+            try {
+                writer.write(source.toString());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Failed to generate codec: " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * 读取字段值的表达式，集合、数组、Map带元素类型
+     *
+     * @param type 字段类型
+     * @return
+     */
+    private String readExpression(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return "reader.readArray(" + classLiteral(((ArrayType) type).getComponentType()) + ")";
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+            if (isSubtype(type, "java.util.Collection")) {
+                String element = arguments.size() > 0 ? classLiteral(arguments.get(0)) : "Object.class";
+                return "reader.readCollection(" + classLiteral(type) + ", " + element + ")";
+            }
+            if (isSubtype(type, "java.util.Map")) {
+                String value = arguments.size() > 1 ? classLiteral(arguments.get(1)) : "Object.class";
+                return "reader.readMap(" + value + ")";
+            }
+        }
+        return "reader.readElement(" + classLiteral(type) + ")";
+    }
+
+    private boolean isSubtype(TypeMirror type, String name) {
+        TypeElement element = elements.getTypeElement(name);
+        return element != null && types.isSubtype(types.erasure(type), types.erasure(element.asType()));
+    }
+
+    /**
+     * 类字面量，泛型和类型变量使用擦除后的类型
+     *
+     * @param type 类型
+     * @return
+     */
+    private String classLiteral(TypeMirror type) {
+        if (type.getKind() == TypeKind.WILDCARD || type.getKind() == TypeKind.TYPEVAR) {
+            type = types.erasure(type);
+        }
+        if (type.getKind() == TypeKind.WILDCARD) {
+            return "Object.class";
+        }
+        return rawName(type) + ".class";
+    }
+
+    /**
+     * 强制转换的类型名称，基础类型使用包装类
+     *
+     * @param type 类型
+     * @return
+     */
+    private String castName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return types.boxedClass(types.getPrimitiveType(type.getKind())).getQualifiedName().toString();
+        }
+        return rawName(type);
+    }
+
+    /**
+     * 擦除后的类型名称
+     *
+     * @param type 类型
+     * @return
+     */
+    private String rawName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return type.getKind().name().toLowerCase();
+        }
+        if (type.getKind() == TypeKind.ARRAY) {
+            return rawName(((ArrayType) type).getComponentType()) + "[]";
+        }
+        TypeMirror erasure = types.erasure(type);
+        if (erasure.getKind() == TypeKind.DECLARED) {
+            return ((TypeElement) types.asElement(erasure)).getQualifiedName().toString();
+        }
+        return "Object";
+    }
+
+    /**
+     * 字段
+     */
+    private static class Property {
+
+        private String name;
+        private TypeMirror type;
+        private String getter;
+        private String setter;
+
+    }
+
+}